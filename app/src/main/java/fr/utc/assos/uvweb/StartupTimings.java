@@ -0,0 +1,124 @@
+package fr.utc.assos.uvweb;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.PrintWriter;
+
+/**
+ * Times the phases of a cold start, from the start of the process, and keeps those of the last cold starts
+ * tagged with the version of the app, so that builds can be compared through
+ * {@code adb shell dumpsys activity fr.utc.assos.uvweb}.
+ * <p>
+ * Starts of the process for something else than an activity, such as a sync, are not recorded.
+ * Before Nougat, the start of the process is approximated by the creation of the application.
+ */
+public final class StartupTimings {
+    private static final String TAG = StartupTimings.class.getSimpleName();
+
+    public static final int PHASE_APPLICATION_CREATED = 0;
+    public static final int PHASE_NETWORK_READY = 1;
+    public static final int PHASE_ACTIVITY_CREATED = 2;
+    public static final int PHASE_FIRST_DRAW = 3;
+    public static final int PHASE_DEFERRED_INIT = 4;
+    private static final String[] PHASE_NAMES = {"application", "network", "activity", "first_draw", "deferred"};
+
+    private static final String PREFERENCES_NAME = "startup_timings";
+    private static final String PREF_RECORDS = "records";
+    private static final String RECORD_SEPARATOR = "\n";
+    private static final int MAX_RECORDS = 20;
+
+    private static final long[] PHASE_TIMES = new long[PHASE_NAMES.length];
+    private static long processStart;
+    private static boolean recording;
+
+    private StartupTimings() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * To be called first thing when the application is created.
+     */
+    public static synchronized void begin(Context context) {
+        processStart = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? Process.getStartElapsedRealtime() : SystemClock.elapsedRealtime();
+        recording = isLaunchedForActivity(context);
+    }
+
+    private static boolean isLaunchedForActivity(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return true;
+        }
+        ActivityManager.RunningAppProcessInfo processInfo = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(processInfo);
+        return processInfo.importance == ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+    }
+
+    /**
+     * Records the first time {@code phase} is reached. Can be called from any thread.
+     */
+    public static synchronized void mark(int phase) {
+        if (recording && PHASE_TIMES[phase] == 0) {
+            PHASE_TIMES[phase] = Math.max(SystemClock.elapsedRealtime() - processStart, 1);
+        }
+    }
+
+    /**
+     * Stores the phases reached so far as the record of this cold start, and stops recording.
+     */
+    public static void save(Context context) {
+        String record;
+        synchronized (StartupTimings.class) {
+            if (!recording) {
+                return;
+            }
+            recording = false;
+            record = formatRecord();
+        }
+        Log.i(TAG, record);
+        SharedPreferences preferences = getPreferences(context);
+        String[] records = TextUtils.split(preferences.getString(PREF_RECORDS, ""), RECORD_SEPARATOR);
+        StringBuilder kept = new StringBuilder(record);
+        for (int i = records.length - 1; i >= 0 && i >= records.length - MAX_RECORDS + 1; i--) {
+            kept.insert(0, records[i] + RECORD_SEPARATOR);
+        }
+        preferences.edit().putString(PREF_RECORDS, kept.toString()).apply();
+    }
+
+    private static String formatRecord() {
+        StringBuilder record = new StringBuilder(BuildConfig.VERSION_NAME).append(" (").append(BuildConfig.VERSION_CODE).append(')');
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            record.append(' ').append(PHASE_NAMES[phase]).append('=');
+            if (PHASE_TIMES[phase] == 0) {
+                record.append('-');
+            } else {
+                record.append(PHASE_TIMES[phase]).append("ms");
+            }
+        }
+        return record.toString();
+    }
+
+    /**
+     * Prints the records of the last cold starts, oldest first.
+     */
+    public static void dump(Context context, String prefix, PrintWriter writer) {
+        String records = getPreferences(context).getString(PREF_RECORDS, "");
+        if (records.isEmpty()) {
+            writer.println(prefix + "Cold starts: none recorded");
+            return;
+        }
+        writer.println(prefix + "Cold starts:");
+        for (String record : TextUtils.split(records, RECORD_SEPARATOR)) {
+            writer.println(prefix + "  " + record);
+        }
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -1,13 +1,104 @@
 package fr.utc.assos.uvweb;
 
+import android.app.Activity;
 import android.app.Application;
+import android.os.Bundle;
+import android.os.Handler;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import com.squareup.leakcanary.LeakCanary;
 
+import fr.utc.assos.uvweb.api.UvwebProvider;
+import fr.utc.assos.uvweb.sync.SyncScheduler;
+import fr.utc.assos.uvweb.ui.adapter.CommentCardPool;
+
 public class UvwebApplication extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+        if (LeakCanary.isInAnalyzerProcess(this)) {
+            // The process LeakCanary analyzes heap dumps in runs none of the app
+            return;
+        }
+        StartupTimings.begin(this);
+        UvwebProvider.init(this);
+        registerActivityLifecycleCallbacks(new FirstDrawCallbacks());
+        StartupTimings.mark(StartupTimings.PHASE_APPLICATION_CREATED);
+    }
+
+    /**
+     * Init that the first screen does not need, run once it has been drawn instead of delaying it.
+     */
+    private void onFirstDraw(Activity activity) {
         LeakCanary.install(this);
+        SyncScheduler.schedule(this);
+        // Opening a UV then finds its first cards already inflated
+        CommentCardPool.preinflate(activity);
+        StartupTimings.mark(StartupTimings.PHASE_DEFERRED_INIT);
+        StartupTimings.save(this);
+    }
+
+    /**
+     * Waits for the first frame of the first activity to be drawn, then unregisters itself.
+     */
+    private class FirstDrawCallbacks implements ActivityLifecycleCallbacks {
+        private final Handler handler = new Handler();
+        private boolean drawn;
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            StartupTimings.mark(StartupTimings.PHASE_ACTIVITY_CREATED);
+        }
+
+        @Override
+        public void onActivityResumed(final Activity activity) {
+            // The content view is set by now, and the window is about to be traversed for the first time
+            final View decorView = activity.getWindow().getDecorView();
+            decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                    if (!drawn) {
+                        drawn = true;
+                        // Runs once the frame being drawn is done
+                        handler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                StartupTimings.mark(StartupTimings.PHASE_FIRST_DRAW);
+                                unregisterActivityLifecycleCallbacks(FirstDrawCallbacks.this);
+                                onFirstDraw(activity);
+                            }
+                        });
+                    }
+                    return true;
+                }
+            });
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+            // no-op
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+            // no-op
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            // no-op
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            // no-op
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            // no-op
+        }
     }
 }
@@ -0,0 +1,225 @@
+package fr.utc.assos.uvweb.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+
+/**
+ * Revalidates GET requests against the bodies stored in a {@link HttpDiskCache}
+ * using ETag and Last-Modified validators.
+ * <p>
+ * A 304 Not Modified answer is turned into a 200 carrying the stored body wrapped in a {@link CachedBody},
+ * which lets {@link CachingConverter} reuse the object it parsed the first time.
+ * Every other successful body is read into a {@link UrlBody}, so that its parsing can be attributed to an endpoint.
+ * <p>
+ * Requests carrying the {@link #HEADER_STREAMING} header are neither revalidated nor stored,
+ * and their body is handed over unread so that it can be parsed as it arrives.
+ */
+class CachingClient implements Client {
+    static final String HEADER_STREAMING = "X-Uvweb-Streaming";
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final Client delegate;
+    private final HttpDiskCache cache;
+    private final HttpCacheStats stats;
+    private final RequestMetrics metrics;
+
+    CachingClient(Client delegate, HttpDiskCache cache, HttpCacheStats stats, RequestMetrics metrics) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.stats = stats;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        if (!"GET".equals(request.getMethod())) {
+            return delegate.execute(request);
+        }
+
+        if (findHeader(request.getHeaders(), HEADER_STREAMING) != null) {
+            return executeStreaming(request);
+        }
+
+        String url = request.getUrl();
+        HttpDiskCache.Validators validators = cache.getValidators(url);
+        List<Header> headers = new ArrayList<>(request.getHeaders());
+        if (validators != null) {
+            if (validators.etag != null) {
+                headers.add(new Header("If-None-Match", validators.etag));
+            }
+            if (validators.lastModified != null) {
+                headers.add(new Header("If-Modified-Since", validators.lastModified));
+            }
+        }
+
+        Response response = delegate.execute(new Request(request.getMethod(), url, headers, request.getBody()));
+
+        if (response.getStatus() == HTTP_NOT_MODIFIED && validators != null) {
+            // The body is only read now that it is known to be reused
+            HttpDiskCache.Entry entry = cache.get(url);
+            if (entry != null && validators.matches(entry)) {
+                stats.onResponse(true, 0, entry.body.length);
+                metrics.record(RequestMetrics.getEndpoint(url), RequestMetrics.METRIC_BODY_SIZE, 0);
+                return new Response(response.getUrl(), HTTP_OK, response.getReason(), response.getHeaders(),
+                        new CachedBody(url, entry, true));
+            }
+            // Evicted or replaced while the request was running
+            response = delegate.execute(request);
+        }
+        if (response.getStatus() != HTTP_OK || response.getBody() == null) {
+            return response;
+        }
+
+        byte[] body = readFully(response.getBody());
+        stats.onResponse(false, body.length, 0);
+        metrics.record(RequestMetrics.getEndpoint(url), RequestMetrics.METRIC_BODY_SIZE, body.length);
+        String etag = findHeader(response.getHeaders(), "ETag");
+        String lastModified = findHeader(response.getHeaders(), "Last-Modified");
+        if (etag == null && lastModified == null) {
+            return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(),
+                    new UrlBody(url, response.getBody().mimeType(), body));
+        }
+
+        HttpDiskCache.Entry newEntry = new HttpDiskCache.Entry(etag, lastModified, response.getBody().mimeType(), body);
+        cache.put(url, newEntry);
+        return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(),
+                new CachedBody(url, newEntry, false));
+    }
+
+    private Response executeStreaming(Request request) throws IOException {
+        List<Header> headers = new ArrayList<>(request.getHeaders().size());
+        for (Header header : request.getHeaders()) {
+            if (!HEADER_STREAMING.equalsIgnoreCase(header.getName())) {
+                headers.add(header);
+            }
+        }
+        Response response = delegate.execute(new Request(request.getMethod(), request.getUrl(), headers, request.getBody()));
+        if (response.getStatus() != HTTP_OK || response.getBody() == null) {
+            return response;
+        }
+        return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(),
+                new StreamingBody(request.getUrl(), response.getBody()));
+    }
+
+    private static String findHeader(List<Header> headers, String name) {
+        for (Header header : headers) {
+            if (name.equalsIgnoreCase(header.getName())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static byte[] readFully(TypedInput body) throws IOException {
+        InputStream in = body.in();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length() > 0 ? (int) body.length() : 8192);
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A body read straight from the connection, whose size is recorded once it is closed.
+     */
+    private final class StreamingBody implements TypedInput {
+        private final String url;
+        private final TypedInput body;
+
+        StreamingBody(String url, TypedInput body) {
+            this.url = url;
+            this.body = body;
+        }
+
+        @Override
+        public String mimeType() {
+            return body.mimeType();
+        }
+
+        @Override
+        public long length() {
+            return body.length();
+        }
+
+        @Override
+        public InputStream in() throws IOException {
+            return new FilterInputStream(body.in()) {
+                private long count;
+                private boolean closed;
+
+                @Override
+                public int read() throws IOException {
+                    int value = super.read();
+                    if (value != -1) {
+                        count++;
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        count += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        stats.onResponse(false, count, 0);
+                        metrics.record(RequestMetrics.getEndpoint(url), RequestMetrics.METRIC_BODY_SIZE, count);
+                    }
+                    super.close();
+                }
+            };
+        }
+    }
+
+    /**
+     * A body that remembers the URL it was downloaded from.
+     */
+    static class UrlBody extends TypedByteArray {
+        final String url;
+
+        UrlBody(String url, String mimeType, byte[] bytes) {
+            super(mimeType, bytes);
+            this.url = url;
+        }
+    }
+
+    /**
+     * A body whose content is identified by its URL and validators.
+     */
+    static final class CachedBody extends UrlBody {
+        final String key;
+        final boolean notModified;
+
+        CachedBody(String url, HttpDiskCache.Entry entry, boolean notModified) {
+            super(url, entry.mimeType, entry.body);
+            this.key = url + '\n' + entry.etag + '\n' + entry.lastModified;
+            this.notModified = notModified;
+        }
+    }
+}
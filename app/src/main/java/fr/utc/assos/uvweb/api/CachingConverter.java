@@ -0,0 +1,80 @@
+package fr.utc.assos.uvweb.api;
+
+import android.util.LruCache;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Keeps the objects parsed from cacheable bodies so that a 304 Not Modified answer
+ * is served without deserializing the stored body again.
+ */
+class CachingConverter implements Converter {
+    private static final int MAX_PARSED_ENTRIES = 32;
+
+    private final Converter delegate;
+    private final HttpCacheStats stats;
+    private final RequestMetrics metrics;
+    private final LruCache<String, Parsed> parsedBodies = new LruCache<>(MAX_PARSED_ENTRIES);
+
+    CachingConverter(Converter delegate, HttpCacheStats stats, RequestMetrics metrics) {
+        this.delegate = delegate;
+        this.stats = stats;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object fromBody(TypedInput body, Type type) throws ConversionException {
+        if (!(body instanceof CachingClient.CachedBody)) {
+            return parse(body, type);
+        }
+
+        CachingClient.CachedBody cachedBody = (CachingClient.CachedBody) body;
+        String key = cachedBody.key + '\n' + type;
+        if (cachedBody.notModified) {
+            Parsed parsed = parsedBodies.get(key);
+            if (parsed != null) {
+                stats.onParseSkipped(parsed.parseNanos);
+                metrics.record(RequestMetrics.getEndpoint(cachedBody.url), RequestMetrics.METRIC_PARSE, 0);
+                return parsed.value;
+            }
+        }
+
+        long start = System.nanoTime();
+        Object value = parse(body, type);
+        parsedBodies.put(key, new Parsed(value, System.nanoTime() - start));
+        return value;
+    }
+
+    private Object parse(TypedInput body, Type type) throws ConversionException {
+        long start = System.nanoTime();
+        Object value = delegate.fromBody(body, type);
+        long parseNanos = System.nanoTime() - start;
+        stats.onParsed(parseNanos);
+        if (body instanceof CachingClient.UrlBody) {
+            metrics.record(RequestMetrics.getEndpoint(((CachingClient.UrlBody) body).url),
+                    RequestMetrics.METRIC_PARSE, TimeUnit.NANOSECONDS.toMicros(parseNanos));
+        }
+        return value;
+    }
+
+    @Override
+    public TypedOutput toBody(Object object) {
+        return delegate.toBody(object);
+    }
+
+    private static final class Parsed {
+        final Object value;
+        final long parseNanos;
+
+        Parsed(Object value, long parseNanos) {
+            this.value = value;
+            this.parseNanos = parseNanos;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package fr.utc.assos.uvweb.api;
+
+/**
+ * Handle on a request started through {@link UvwebProvider}. Cancelling it stops the delivery of results
+ * to its callback, and aborts the request if nobody else is waiting for it.
+ * Must only be used from the main thread.
+ */
+public interface CancellationToken {
+    void cancel();
+
+    boolean isCancelled();
+}
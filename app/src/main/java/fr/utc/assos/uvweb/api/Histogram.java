@@ -0,0 +1,69 @@
+package fr.utc.assos.uvweb.api;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of positive values over power-of-two buckets, cheap enough to be fed on every request.
+ */
+final class Histogram {
+    private static final int BUCKET_COUNT = 64;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    synchronized void record(long rawValue) {
+        long value = Math.max(rawValue, 0);
+        // Bucket i holds the values whose highest bit is bit i - 1
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    synchronized long getCount() {
+        return count;
+    }
+
+    synchronized long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    synchronized long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @return an upper bound of the value below which {@code percentile} percent of the values fall,
+     * accurate to a factor of two
+     */
+    synchronized long getPercentile(int percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (count * percentile + 99) / 100;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, max);
+            }
+        }
+        return max;
+    }
+
+    synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+}
@@ -0,0 +1,76 @@
+package fr.utc.assos.uvweb.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing how much work the HTTP cache saved.
+ */
+public final class HttpCacheStats {
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong parseNanosSaved = new AtomicLong();
+
+    void onResponse(boolean notModified, long transferred, long saved) {
+        requestCount.incrementAndGet();
+        if (notModified) {
+            notModifiedCount.incrementAndGet();
+        }
+        bytesTransferred.addAndGet(transferred);
+        bytesSaved.addAndGet(saved);
+    }
+
+    void onParsed(long nanos) {
+        parseNanos.addAndGet(nanos);
+    }
+
+    void onParseSkipped(long nanos) {
+        parseNanosSaved.addAndGet(nanos);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * @return the ratio of requests answered with 304 Not Modified
+     */
+    public float getHitRatio() {
+        long requests = requestCount.get();
+        return requests == 0 ? 0 : (float) notModifiedCount.get() / requests;
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    public long getParseTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseNanos.get());
+    }
+
+    public long getParseTimeSavedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(parseNanosSaved.get());
+    }
+
+    @Override
+    public String toString() {
+        return "HttpCacheStats{requests=" + getRequestCount()
+                + ", notModified=" + getNotModifiedCount()
+                + ", bytesTransferred=" + getBytesTransferred()
+                + ", bytesSaved=" + getBytesSaved()
+                + ", parseTimeMillis=" + getParseTimeMillis()
+                + ", parseTimeSavedMillis=" + getParseTimeSavedMillis()
+                + '}';
+    }
+}
@@ -0,0 +1,292 @@
+package fr.utc.assos.uvweb.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores response bodies along with their validators, evicting the least recently used entries
+ * once the directory grows past {@code maxSize} bytes.
+ * <p>
+ * Entries are written to a temporary file then renamed, so reads never see a partial entry.
+ * Writes to the same entry are serialized, those to different entries run concurrently.
+ * The size and use order of the entries are kept in memory, read from the directory on first use.
+ */
+class HttpDiskCache {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int LOCK_COUNT = 16;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxSize;
+    private final Object[] entryLocks = new Object[LOCK_COUNT];
+    // Entry sizes by file name, least recently used first. Locked after the entry locks, never before.
+    private final Object indexLock = new Object();
+    private LinkedHashMap<String, Long> entrySizes;
+    private long size;
+
+    HttpDiskCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        for (int i = 0; i < LOCK_COUNT; i++) {
+            entryLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Only reads the header of the entry, which is all a revalidation needs until the server answers.
+     */
+    Validators getValidators(String url) {
+        File file = getFile(url);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 512));
+            Validators validators = new Validators(emptyToNull(in.readUTF()), emptyToNull(in.readUTF()));
+            markUsed(file);
+            return validators;
+        } catch (IOException e) {
+            deleteEntry(file);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    Entry get(String url) {
+        File file = getFile(url);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            String etag = emptyToNull(in.readUTF());
+            String lastModified = emptyToNull(in.readUTF());
+            String mimeType = emptyToNull(in.readUTF());
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            // Keeps the use order for the next process, which rebuilds it from the modification dates
+            file.setLastModified(System.currentTimeMillis());
+            markUsed(file);
+            return new Entry(etag, lastModified, mimeType, body);
+        } catch (IOException e) {
+            deleteEntry(file);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    void put(String url, Entry entry) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        File file = getFile(url);
+        synchronized (getLock(file)) {
+            File tmpFile = new File(directory, file.getName() + TMP_SUFFIX);
+            DataOutputStream out = null;
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+                out.writeUTF(nullToEmpty(entry.etag));
+                out.writeUTF(nullToEmpty(entry.lastModified));
+                out.writeUTF(nullToEmpty(entry.mimeType));
+                out.writeInt(entry.body.length);
+                out.write(entry.body);
+                out.close();
+                out = null;
+                if (tmpFile.renameTo(file)) {
+                    setEntrySize(file.getName(), file.length());
+                } else {
+                    tmpFile.delete();
+                }
+            } catch (IOException e) {
+                tmpFile.delete();
+            } finally {
+                closeQuietly(out);
+            }
+        }
+        trimToSize();
+    }
+
+    private void deleteEntry(File file) {
+        synchronized (getLock(file)) {
+            file.delete();
+            setEntrySize(file.getName(), -1);
+        }
+    }
+
+    private Object getLock(File file) {
+        // The name is a hex digest, so its hash code is evenly spread
+        return entryLocks[(file.getName().hashCode() & Integer.MAX_VALUE) % LOCK_COUNT];
+    }
+
+    /**
+     * Evicts the least recently used entries, each under its own lock so that no write in progress is affected.
+     */
+    private void trimToSize() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (indexLock) {
+            readIndex();
+            Iterator<Map.Entry<String, Long>> entries = entrySizes.entrySet().iterator();
+            while (size > maxSize && entries.hasNext()) {
+                Map.Entry<String, Long> entry = entries.next();
+                size -= entry.getValue();
+                evicted.add(entry.getKey());
+                entries.remove();
+            }
+        }
+        for (String name : evicted) {
+            File file = new File(directory, name);
+            synchronized (getLock(file)) {
+                synchronized (indexLock) {
+                    if (entrySizes.containsKey(name)) {
+                        // Written again since it was picked
+                        continue;
+                    }
+                }
+                file.delete();
+            }
+        }
+    }
+
+    private void markUsed(File file) {
+        synchronized (indexLock) {
+            readIndex();
+            entrySizes.get(file.getName());
+        }
+    }
+
+    /**
+     * @param length the new size of the entry, or -1 if it was deleted
+     */
+    private void setEntrySize(String name, long length) {
+        synchronized (indexLock) {
+            readIndex();
+            Long previous = length < 0 ? entrySizes.remove(name) : entrySizes.put(name, length);
+            size += Math.max(length, 0) - (previous != null ? previous : 0);
+        }
+    }
+
+    /**
+     * Lists the entries once, in the order of their last use as recorded by their modification date.
+     * Temporary files belong to writes in progress and are left out.
+     */
+    private void readIndex() {
+        if (entrySizes != null) {
+            return;
+        }
+        entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // Read once, as a date may change while sorting
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                long l = lastModified[lhs];
+                long r = lastModified[rhs];
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (int i : order) {
+            File file = files[i];
+            if (!file.getName().endsWith(TMP_SUFFIX)) {
+                long length = file.length();
+                entrySizes.put(file.getName(), length);
+                size += length;
+            }
+        }
+    }
+
+    private File getFile(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes("UTF-8"));
+            char[] name = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                name[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+                name[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+            }
+            return new File(directory, new String(name));
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.length() == 0 ? null : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // no-op
+            }
+        }
+    }
+
+    static final class Validators {
+        final String etag;
+        final String lastModified;
+
+        Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return whether {@code entry} is still the one these validators were read from
+         */
+        boolean matches(Entry entry) {
+            return equal(etag, entry.etag) && equal(lastModified, entry.lastModified);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    static final class Entry {
+        final String etag;
+        final String lastModified;
+        final String mimeType;
+        final byte[] body;
+
+        Entry(String etag, String lastModified, String mimeType, byte[] body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+            this.body = body;
+        }
+    }
+}
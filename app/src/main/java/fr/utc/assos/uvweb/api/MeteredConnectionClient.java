@@ -0,0 +1,141 @@
+package fr.utc.assos.uvweb.api;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.client.UrlConnectionClient;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Same as {@link UrlConnectionClient}, whose hooks are not overridable, but connects explicitly
+ * so that connection setup and time to first byte can be told apart in {@link RequestMetrics}.
+ * Connections opened for a {@link RequestScheduler} request are disconnected when the request is cancelled.
+ */
+class MeteredConnectionClient implements Client {
+    private static final int CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(15);
+    private static final int READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(20);
+    private static final int CHUNK_SIZE = 4096;
+    private static final int HTTP_BAD_REQUEST = 400;
+
+    private final RequestMetrics metrics;
+
+    MeteredConnectionClient(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(request.getUrl()).openConnection();
+        RequestScheduler.ScheduledRequest scheduledRequest = RequestScheduler.getRunningRequest();
+        if (scheduledRequest != null) {
+            boolean active = scheduledRequest.setAbortAction(new Runnable() {
+                @Override
+                public void run() {
+                    connection.disconnect();
+                }
+            });
+            if (!active) {
+                throw new InterruptedIOException("Request cancelled");
+            }
+        }
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestMethod(request.getMethod());
+        connection.setDoInput(true);
+        for (Header header : request.getHeaders()) {
+            connection.addRequestProperty(header.getName(), header.getValue());
+        }
+
+        boolean metered = metrics.isEnabled();
+        String endpoint = metered ? RequestMetrics.getEndpoint(request.getUrl()) : null;
+        long start = metered ? SystemClock.elapsedRealtime() : 0;
+
+        TypedOutput body = request.getBody();
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.addRequestProperty("Content-Type", body.mimeType());
+            long length = body.length();
+            if (length != -1) {
+                connection.setFixedLengthStreamingMode((int) length);
+                connection.addRequestProperty("Content-Length", String.valueOf(length));
+            } else {
+                connection.setChunkedStreamingMode(CHUNK_SIZE);
+            }
+        }
+
+        if (metered) {
+            connection.connect();
+            long connected = SystemClock.elapsedRealtime();
+            metrics.record(endpoint, RequestMetrics.METRIC_CONNECT, connected - start);
+            start = connected;
+        }
+        if (body != null) {
+            body.writeTo(connection.getOutputStream());
+        }
+
+        int status = connection.getResponseCode();
+        if (metered) {
+            metrics.record(endpoint, RequestMetrics.METRIC_FIRST_BYTE, SystemClock.elapsedRealtime() - start);
+        }
+        return readResponse(connection, status);
+    }
+
+    private static Response readResponse(HttpURLConnection connection, int status) throws IOException {
+        String reason = connection.getResponseMessage();
+        if (reason == null) {
+            reason = "";
+        }
+
+        List<Header> headers = new ArrayList<>();
+        for (Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet()) {
+            for (String value : field.getValue()) {
+                headers.add(new Header(field.getKey(), value));
+            }
+        }
+
+        InputStream stream = status >= HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream();
+        TypedInput body = new ConnectionBody(connection.getContentType(), connection.getContentLength(), stream);
+        return new Response(connection.getURL().toString(), status, reason, headers, body);
+    }
+
+    private static final class ConnectionBody implements TypedInput {
+        private final String mimeType;
+        private final long length;
+        private final InputStream stream;
+
+        ConnectionBody(String mimeType, long length, InputStream stream) {
+            this.mimeType = mimeType;
+            this.length = length;
+            this.stream = stream;
+        }
+
+        @Override
+        public String mimeType() {
+            return mimeType;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public InputStream in() throws IOException {
+            return stream;
+        }
+    }
+}
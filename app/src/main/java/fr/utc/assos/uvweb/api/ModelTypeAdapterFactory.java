@@ -0,0 +1,473 @@
+package fr.utc.assos.uvweb.api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.Newsfeed;
+import fr.utc.assos.uvweb.model.Poll;
+import fr.utc.assos.uvweb.model.UvCatalogueDelta;
+import fr.utc.assos.uvweb.model.UvDetail;
+import fr.utc.assos.uvweb.model.UvDetailContainer;
+import fr.utc.assos.uvweb.model.UvDetailInfo;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Streaming adapters for the model classes, so that Gson never falls back to reflection for them.
+ * Unknown fields are skipped without being materialized.
+ */
+public final class ModelTypeAdapterFactory implements TypeAdapterFactory {
+    public static final TypeAdapter<UvListItem> UV_LIST_ITEM = new UvListItemAdapter().nullSafe();
+    public static final TypeAdapter<Comment> COMMENT = new CommentAdapter().nullSafe();
+    public static final TypeAdapter<Poll> POLL = new PollAdapter().nullSafe();
+    public static final TypeAdapter<Newsfeed> NEWSFEED = new NewsfeedAdapter().nullSafe();
+    public static final TypeAdapter<UvDetailInfo> UV_DETAIL_INFO = new UvDetailInfoAdapter().nullSafe();
+    public static final TypeAdapter<UvDetailContainer> UV_DETAIL_CONTAINER = new UvDetailContainerAdapter().nullSafe();
+    public static final TypeAdapter<UvDetail> UV_DETAIL = new UvDetailAdapter().nullSafe();
+    public static final TypeAdapter<UvCatalogueDelta> UV_CATALOGUE_DELTA = new UvCatalogueDeltaAdapter().nullSafe();
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == UvListItem.class) {
+            return (TypeAdapter<T>) UV_LIST_ITEM;
+        } else if (rawType == Comment.class) {
+            return (TypeAdapter<T>) COMMENT;
+        } else if (rawType == Poll.class) {
+            return (TypeAdapter<T>) POLL;
+        } else if (rawType == Newsfeed.class) {
+            return (TypeAdapter<T>) NEWSFEED;
+        } else if (rawType == UvDetailInfo.class) {
+            return (TypeAdapter<T>) UV_DETAIL_INFO;
+        } else if (rawType == UvDetailContainer.class) {
+            return (TypeAdapter<T>) UV_DETAIL_CONTAINER;
+        } else if (rawType == UvDetail.class) {
+            return (TypeAdapter<T>) UV_DETAIL;
+        } else if (rawType == UvCatalogueDelta.class) {
+            return (TypeAdapter<T>) UV_CATALOGUE_DELTA;
+        }
+        return null;
+    }
+
+    private static final class UvListItemAdapter extends TypeAdapter<UvListItem> {
+        @Override
+        public UvListItem read(JsonReader in) throws IOException {
+            String name = null;
+            String title = null;
+            float globalRate = UvListItem.NO_RATE;
+            int commentCount = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "name":
+                        name = nextString(in);
+                        break;
+                    case "title":
+                        title = nextString(in);
+                        break;
+                    case "globalRate":
+                        globalRate = nextRate(in);
+                        break;
+                    case "commentCount":
+                        commentCount = nextInt(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new UvListItem(name, title, globalRate, commentCount);
+        }
+
+        @Override
+        public void write(JsonWriter out, UvListItem uv) throws IOException {
+            out.beginObject();
+            out.name("name").value(uv.getName());
+            out.name("title").value(uv.getTitle());
+            out.name("globalRate");
+            if (uv.hasGlobalRate()) {
+                out.value(Float.valueOf(uv.getGlobalRate()));
+            } else {
+                out.nullValue();
+            }
+            out.name("commentCount").value(uv.getCommentCount());
+            out.endObject();
+        }
+    }
+
+    private static final class CommentAdapter extends TypeAdapter<Comment> {
+        @Override
+        public Comment read(JsonReader in) throws IOException {
+            String author = null;
+            int globalRate = 0;
+            String date = null;
+            String semester = null;
+            boolean passed = false;
+            String comment = null;
+            String uvName = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "identity":
+                        author = nextString(in);
+                        break;
+                    case "globalRate":
+                        globalRate = nextInt(in);
+                        break;
+                    case "date":
+                        date = nextString(in);
+                        break;
+                    case "semester":
+                        semester = nextString(in);
+                        break;
+                    case "passed":
+                        passed = Comment.PASSED.equals(nextString(in));
+                        break;
+                    case "comment":
+                        comment = nextString(in);
+                        break;
+                    case "name":
+                        uvName = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new Comment(author, globalRate, date, semester, passed, comment, uvName);
+        }
+
+        @Override
+        public void write(JsonWriter out, Comment comment) throws IOException {
+            out.beginObject();
+            out.name("identity").value(comment.getAuthor());
+            out.name("globalRate").value(comment.getGlobalRate());
+            out.name("date").value(comment.getDate());
+            out.name("semester").value(comment.getSemester());
+            out.name("passed").value(comment.isPassed() ? Comment.PASSED : null);
+            out.name("comment").value(comment.getComment());
+            out.name("name").value(comment.getUvName());
+            out.endObject();
+        }
+    }
+
+    private static final class PollAdapter extends TypeAdapter<Poll> {
+        @Override
+        public Poll read(JsonReader in) throws IOException {
+            float successRate = 0;
+            int year = 0;
+            String season = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "successRate":
+                        successRate = nextFloat(in);
+                        break;
+                    case "year":
+                        year = nextInt(in);
+                        break;
+                    case "season":
+                        season = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new Poll(successRate, year, season);
+        }
+
+        @Override
+        public void write(JsonWriter out, Poll poll) throws IOException {
+            out.beginObject();
+            out.name("successRate").value(poll.getSuccessRate());
+            out.name("year").value(poll.getYear());
+            out.name("season").value(poll.getSeason());
+            out.endObject();
+        }
+    }
+
+    private static final class NewsfeedAdapter extends TypeAdapter<Newsfeed> {
+        @Override
+        public Newsfeed read(JsonReader in) throws IOException {
+            List<Comment> comments = null;
+            String nextCursor = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "comments":
+                        comments = readList(in, COMMENT);
+                        break;
+                    case "next_cursor":
+                        nextCursor = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new Newsfeed(comments, nextCursor);
+        }
+
+        @Override
+        public void write(JsonWriter out, Newsfeed newsfeed) throws IOException {
+            out.beginObject();
+            out.name("comments");
+            writeList(out, newsfeed.getComments(), COMMENT);
+            if (newsfeed.getNextCursor() != null) {
+                out.name("next_cursor").value(newsfeed.getNextCursor());
+            }
+            out.endObject();
+        }
+    }
+
+    private static final class UvDetailInfoAdapter extends TypeAdapter<UvDetailInfo> {
+        @Override
+        public UvDetailInfo read(JsonReader in) throws IOException {
+            String name = null;
+            String title = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "name":
+                        name = nextString(in);
+                        break;
+                    case "title":
+                        title = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new UvDetailInfo(name, title);
+        }
+
+        @Override
+        public void write(JsonWriter out, UvDetailInfo info) throws IOException {
+            out.beginObject();
+            out.name("name").value(info.getName());
+            out.name("title").value(info.getTitle());
+            out.endObject();
+        }
+    }
+
+    private static final class UvDetailContainerAdapter extends TypeAdapter<UvDetailContainer> {
+        @Override
+        public UvDetailContainer read(JsonReader in) throws IOException {
+            UvDetailInfo uv = null;
+            List<Comment> comments = null;
+            List<Poll> polls = null;
+            float averageRate = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "uv":
+                        uv = UV_DETAIL_INFO.read(in);
+                        break;
+                    case "comments":
+                        comments = readList(in, COMMENT);
+                        break;
+                    case "polls":
+                        polls = readList(in, POLL);
+                        break;
+                    case "averageRate":
+                        averageRate = nextFloat(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new UvDetailContainer(uv, comments, polls, averageRate);
+        }
+
+        @Override
+        public void write(JsonWriter out, UvDetailContainer container) throws IOException {
+            out.beginObject();
+            out.name("uv");
+            UV_DETAIL_INFO.write(out, container.getUv());
+            out.name("comments");
+            writeList(out, container.getComments(), COMMENT);
+            out.name("polls");
+            writeList(out, container.getPolls(), POLL);
+            out.name("averageRate").value(container.getAverageRate());
+            out.endObject();
+        }
+    }
+
+    private static final class UvDetailAdapter extends TypeAdapter<UvDetail> {
+        @Override
+        public UvDetail read(JsonReader in) throws IOException {
+            UvDetailContainer detail = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("details".equals(in.nextName())) {
+                    detail = UV_DETAIL_CONTAINER.read(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return new UvDetail(detail);
+        }
+
+        @Override
+        public void write(JsonWriter out, UvDetail uvDetail) throws IOException {
+            out.beginObject();
+            out.name("details");
+            UV_DETAIL_CONTAINER.write(out, uvDetail.getDetail());
+            out.endObject();
+        }
+    }
+
+    private static final class UvCatalogueDeltaAdapter extends TypeAdapter<UvCatalogueDelta> {
+        @Override
+        public UvCatalogueDelta read(JsonReader in) throws IOException {
+            long version = 0;
+            List<UvListItem> updated = null;
+            List<String> deleted = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "version":
+                        version = nextLong(in);
+                        break;
+                    case "updated":
+                        updated = readList(in, UV_LIST_ITEM);
+                        break;
+                    case "deleted":
+                        deleted = readStringList(in);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return new UvCatalogueDelta(version, updated, deleted);
+        }
+
+        @Override
+        public void write(JsonWriter out, UvCatalogueDelta delta) throws IOException {
+            out.beginObject();
+            out.name("version").value(delta.getVersion());
+            out.name("updated");
+            writeList(out, delta.getUpdated(), UV_LIST_ITEM);
+            out.name("deleted").beginArray();
+            for (String name : delta.getDeleted()) {
+                out.value(name);
+            }
+            out.endArray();
+            out.endObject();
+        }
+    }
+
+    static <T> List<T> readList(JsonReader in, TypeAdapter<T> elementAdapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(elementAdapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    static <T> void writeList(JsonWriter out, List<T> list, TypeAdapter<T> elementAdapter) throws IOException {
+        if (list == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (T element : list) {
+            elementAdapter.write(out, element);
+        }
+        out.endArray();
+    }
+
+    static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        } else if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    static List<String> readStringList(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(nextString(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    static long nextLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextLong();
+    }
+
+    static int nextInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * Reads a rate sent either as a number or as a string, which may use a decimal comma.
+     *
+     * @return the rate, or {@link UvListItem#NO_RATE} if it is missing or not a number
+     */
+    static float nextRate(JsonReader in) throws IOException {
+        String rate = nextString(in);
+        if (rate == null) {
+            return UvListItem.NO_RATE;
+        }
+        try {
+            return Float.parseFloat(rate.trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return UvListItem.NO_RATE;
+        }
+    }
+
+    static float nextFloat(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return (float) in.nextDouble();
+    }
+}
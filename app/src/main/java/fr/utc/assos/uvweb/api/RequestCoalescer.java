@@ -0,0 +1,162 @@
+package fr.utc.assos.uvweb.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Shares one in-flight request between every future asking for the same key.
+ * A request nobody waits for anymore is cancelled, and aborted if it already started.
+ * Must only be used from the main thread, where Retrofit delivers its callbacks.
+ */
+class RequestCoalescer {
+    private final Map<String, Call> calls = new HashMap<>();
+    private final RequestScheduler scheduler;
+
+    RequestCoalescer(RequestScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Registers the future for the request identified by {@code key}, and raises the priority of that request
+     * if it is already queued with a less urgent one. Cancelling the future detaches it.
+     * If an intermediate result was already published for it, the future receives it right away.
+     *
+     * @return true if no such request is in flight and the caller must start it
+     */
+    @SuppressWarnings("unchecked")
+    <T> boolean join(final String key, final UvwebFuture<T> future, int priority) {
+        future.onCancel(new Runnable() {
+            @Override
+            public void run() {
+                detach(key, future);
+            }
+        });
+        Call call = calls.get(key);
+        if (call != null) {
+            call.futures.add(future);
+            if (priority < call.priority) {
+                call.priority = priority;
+                scheduler.promote(call.request, priority);
+            }
+            if (call.hasInterimResult) {
+                future.publish((T) call.interimResult);
+            }
+            return false;
+        }
+        call = new Call(priority);
+        call.futures.add(future);
+        calls.put(key, call);
+        return true;
+    }
+
+    /**
+     * @return true if the request identified by {@code key} still has futures waiting for it
+     */
+    boolean isPending(String key) {
+        return calls.containsKey(key);
+    }
+
+    /**
+     * Starts the network part of the request identified by {@code key} through the scheduler.
+     *
+     * @param call must start exactly one asynchronous Retrofit request
+     */
+    void schedule(String key, Runnable call) {
+        Call pendingCall = calls.get(key);
+        if (pendingCall != null) {
+            pendingCall.request = scheduler.schedule(pendingCall.priority, call);
+        }
+    }
+
+    /**
+     * Delivers a result while the request keeps running, and replays it to later futures.
+     */
+    @SuppressWarnings("unchecked")
+    <T> void publish(String key, T result) {
+        Call call = calls.get(key);
+        if (call == null) {
+            return;
+        }
+        call.interimResult = result;
+        call.hasInterimResult = true;
+        for (UvwebFuture future : new ArrayList<>(call.futures)) {
+            future.publish(result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> void success(String key, T result, Response response) {
+        Call call = calls.remove(key);
+        if (call == null) {
+            return;
+        }
+        for (UvwebFuture future : call.futures) {
+            future.succeed(result, response);
+        }
+    }
+
+    void failure(String key, RetrofitError error) {
+        Call call = calls.remove(key);
+        if (call == null) {
+            return;
+        }
+        for (UvwebFuture<?> future : call.futures) {
+            future.fail(error);
+        }
+    }
+
+    /**
+     * Fails the request, unless an intermediate result was published for it: it then completes with that result,
+     * which is already on screen and better than an error.
+     *
+     * @return true if the request failed
+     */
+    boolean failUnlessPublished(String key, RetrofitError error) {
+        Call call = calls.get(key);
+        if (call != null && call.hasInterimResult) {
+            finish(key);
+            return false;
+        }
+        failure(key, error);
+        return true;
+    }
+
+    /**
+     * Completes the request with its intermediate result.
+     */
+    void finish(String key) {
+        Call call = calls.remove(key);
+        if (call == null) {
+            return;
+        }
+        for (UvwebFuture<?> future : call.futures) {
+            future.finish();
+        }
+    }
+
+    private void detach(String key, UvwebFuture<?> future) {
+        Call call = calls.get(key);
+        if (call == null || !call.futures.remove(future) || !call.futures.isEmpty()) {
+            return;
+        }
+        calls.remove(key);
+        scheduler.cancel(call.request);
+    }
+
+    private static final class Call {
+        final List<UvwebFuture<?>> futures = new ArrayList<>();
+        int priority;
+        RequestScheduler.ScheduledRequest request;
+        Object interimResult;
+        boolean hasInterimResult;
+
+        Call(int priority) {
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package fr.utc.assos.uvweb.api;
+
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Per-endpoint histograms of where the time goes when loading a screen: connection setup, time to first byte,
+ * body size, deserialization, and the whole load until the fragment has displayed the data.
+ * Recording is a no-op while disabled.
+ */
+public final class RequestMetrics {
+    public static final String ENDPOINT_UVS = "getUvs";
+    public static final String ENDPOINT_NEWSFEED = "getNewsfeed";
+    public static final String ENDPOINT_UV_DETAIL = "getUvDetail";
+    private static final String[] ENDPOINTS = {ENDPOINT_UVS, ENDPOINT_NEWSFEED, ENDPOINT_UV_DETAIL};
+
+    static final int METRIC_CONNECT = 0;
+    static final int METRIC_FIRST_BYTE = 1;
+    static final int METRIC_BODY_SIZE = 2;
+    static final int METRIC_PARSE = 3;
+    static final int METRIC_DISPLAY = 4;
+    private static final String[] METRIC_NAMES = {"connect ms", "first byte ms", "body bytes", "parse us", "display ms"};
+
+    private static final int[] PERCENTILES = {50, 90, 99};
+
+    private final Histogram[][] histograms = new Histogram[ENDPOINTS.length][METRIC_NAMES.length];
+    private volatile boolean enabled;
+
+    RequestMetrics() {
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            for (int j = 0; j < METRIC_NAMES.length; j++) {
+                histograms[i][j] = new Histogram();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * To be called once the data loaded from {@code endpoint} is on screen.
+     *
+     * @param loadStartedAt the {@link SystemClock#elapsedRealtime()} at which the load was requested
+     */
+    public void recordDisplayed(String endpoint, long loadStartedAt) {
+        if (enabled && loadStartedAt > 0) {
+            record(endpoint, METRIC_DISPLAY, SystemClock.elapsedRealtime() - loadStartedAt);
+        }
+    }
+
+    void record(String endpoint, int metric, long value) {
+        if (!enabled || endpoint == null) {
+            return;
+        }
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            if (ENDPOINTS[i].equals(endpoint)) {
+                histograms[i][metric].record(value);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the endpoint a request URL belongs to, or null if it is not tracked
+     */
+    static String getEndpoint(String url) {
+        if (url == null) {
+            return null;
+        } else if (url.contains("/uv/app/all/") || url.contains("/uv/app/changes")) {
+            return ENDPOINT_UVS;
+        } else if (url.contains("/app/recentactivity")) {
+            return ENDPOINT_NEWSFEED;
+        } else if (url.contains("/uv/app/details/")) {
+            return ENDPOINT_UV_DETAIL;
+        }
+        return null;
+    }
+
+    /**
+     * @return the largest value recorded for {@code metric}, or 0 if none was
+     */
+    @VisibleForTesting
+    long getMax(String endpoint, int metric) {
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            if (ENDPOINTS[i].equals(endpoint)) {
+                return histograms[i][metric].getMax();
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (Histogram[] endpointHistograms : histograms) {
+            for (Histogram histogram : endpointHistograms) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * Writes count, mean, min, max and percentiles of every metric, for bug reports.
+     */
+    public void dump(PrintWriter writer) {
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            writer.println(ENDPOINTS[i]);
+            for (int j = 0; j < METRIC_NAMES.length; j++) {
+                Histogram histogram = histograms[i][j];
+                writer.print("  " + METRIC_NAMES[j] + ": n=" + histogram.getCount()
+                        + " mean=" + histogram.getMean()
+                        + " min=" + histogram.getMin()
+                        + " max=" + histogram.getMax());
+                for (int percentile : PERCENTILES) {
+                    writer.print(" p" + percentile + "<=" + histogram.getPercentile(percentile));
+                }
+                writer.println();
+            }
+        }
+    }
+
+    /**
+     * @return the median of every metric, one line per endpoint
+     */
+    public String getSummary() {
+        StringWriter summary = new StringWriter();
+        PrintWriter writer = new PrintWriter(summary);
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            writer.print(ENDPOINTS[i] + " n=" + histograms[i][METRIC_DISPLAY].getCount());
+            for (int j = 0; j < METRIC_NAMES.length; j++) {
+                writer.print(" | " + METRIC_NAMES[j] + " " + histograms[i][j].getPercentile(50));
+            }
+            writer.println();
+        }
+        writer.flush();
+        return summary.toString().trim();
+    }
+}
@@ -0,0 +1,190 @@
+package fr.utc.assos.uvweb.api;
+
+import android.os.AsyncTask;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retrofit HTTP executor running requests on a bounded pool, most urgent first.
+ * <p>
+ * Retrofit hands the executor an anonymous runnable, so the priority is attached through {@link #schedule},
+ * which runs the Retrofit call and captures the runnable it enqueues. A cancelled request that has not
+ * started yet is dropped from the queue and never reaches the network; one that has started is aborted
+ * through the action its HTTP client registered with {@link ScheduledRequest#setAbortAction}.
+ */
+public final class RequestScheduler implements Executor {
+    /**
+     * Data for the screen the user is looking at.
+     */
+    public static final int PRIORITY_VISIBLE = 0;
+    /**
+     * Data the user asked for, such as the next page of a list.
+     */
+    public static final int PRIORITY_USER_INITIATED = 1;
+    /**
+     * Data the user may ask for soon.
+     */
+    public static final int PRIORITY_PREFETCH = 2;
+    /**
+     * Data nobody is waiting for.
+     */
+    public static final int PRIORITY_BACKGROUND_SYNC = 3;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final ThreadLocal<ScheduledRequest> RUNNING = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor pool;
+    private final ThreadLocal<ScheduledRequest> scheduling = new ThreadLocal<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    RequestScheduler(int maxConcurrentRequests) {
+        pool = new ThreadPoolExecutor(maxConcurrentRequests, maxConcurrentRequests, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new RequestThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs {@code call}, which must start exactly one asynchronous Retrofit request, and queues that request
+     * with the given priority.
+     */
+    ScheduledRequest schedule(int priority, Runnable call) {
+        ScheduledRequest request = new ScheduledRequest(priority, sequence.getAndIncrement());
+        scheduling.set(request);
+        try {
+            call.run();
+        } finally {
+            scheduling.remove();
+        }
+        return request;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        ScheduledRequest request = scheduling.get();
+        if (request == null) {
+            request = new ScheduledRequest(PRIORITY_USER_INITIATED, sequence.getAndIncrement());
+        }
+        request.runnable = runnable;
+        pool.execute(request);
+    }
+
+    /**
+     * @return the request {@link #schedule} is starting on the current thread, or null if it is not within such a call
+     */
+    ScheduledRequest getSchedulingRequest() {
+        return scheduling.get();
+    }
+
+    /**
+     * @return the request running on the current thread, or null if it is not a scheduler thread
+     */
+    static ScheduledRequest getRunningRequest() {
+        return RUNNING.get();
+    }
+
+    /**
+     * Moves a queued request ahead if {@code priority} is more urgent than its current one.
+     */
+    void promote(ScheduledRequest request, int priority) {
+        if (request == null || priority >= request.priority) {
+            return;
+        }
+        if (pool.remove(request)) {
+            request.priority = priority;
+            pool.execute(request);
+        } else {
+            request.priority = priority;
+        }
+    }
+
+    /**
+     * Drops the request if it has not started yet, in which case its callback is never invoked.
+     * Otherwise aborts its HTTP call, which then fails.
+     */
+    void cancel(ScheduledRequest request) {
+        if (request == null) {
+            return;
+        }
+        pool.remove(request);
+        Runnable abortAction = request.cancel();
+        if (abortAction != null) {
+            // Closing a connection may block
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(abortAction);
+        }
+    }
+
+    static final class ScheduledRequest implements Runnable, Comparable<ScheduledRequest> {
+        private final long sequence;
+        private volatile int priority;
+        private boolean cancelled;
+        private Runnable abortAction;
+        private Runnable runnable;
+
+        ScheduledRequest(int priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled() || runnable == null) {
+                return;
+            }
+            RUNNING.set(this);
+            try {
+                runnable.run();
+            } finally {
+                RUNNING.remove();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Registers how to abort the HTTP call in progress.
+         *
+         * @return false if the request was already cancelled and must not go on
+         */
+        synchronized boolean setAbortAction(Runnable action) {
+            abortAction = action;
+            return !cancelled;
+        }
+
+        private synchronized Runnable cancel() {
+            cancelled = true;
+            return abortAction;
+        }
+
+        @Override
+        public int compareTo(ScheduledRequest another) {
+            if (priority != another.priority) {
+                return priority < another.priority ? -1 : 1;
+            }
+            return sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+        }
+    }
+
+    private static final class RequestThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "uvweb-http-" + count.incrementAndGet());
+        }
+    }
+}
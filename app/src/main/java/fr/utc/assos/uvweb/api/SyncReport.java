@@ -0,0 +1,42 @@
+package fr.utc.assos.uvweb.api;
+
+/**
+ * Cost of a {@link UvwebProvider#sync()}, to tune how often it runs.
+ */
+public final class SyncReport {
+    private final long durationMillis;
+    private final long bytesTransferred;
+    private final int uvDetailCount;
+
+    SyncReport(long durationMillis, long bytesTransferred, int uvDetailCount) {
+        this.durationMillis = durationMillis;
+        this.bytesTransferred = bytesTransferred;
+        this.uvDetailCount = uvDetailCount;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return the bytes downloaded during the sync, including those of foreground requests running meanwhile
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return the number of UV details refreshed
+     */
+    public int getUvDetailCount() {
+        return uvDetailCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncReport{durationMillis=" + durationMillis
+                + ", bytesTransferred=" + bytesTransferred
+                + ", uvDetailCount=" + uvDetailCount
+                + '}';
+    }
+}
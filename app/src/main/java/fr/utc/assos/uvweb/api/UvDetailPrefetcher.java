@@ -0,0 +1,132 @@
+package fr.utc.assos.uvweb.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fr.utc.assos.uvweb.model.UvDetail;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Loads UV details into the {@link fr.utc.assos.uvweb.data.UvwebRepository} ahead of time,
+ * with at most {@code maxConcurrentRequests} requests in flight and at most {@code maxBytesPerWindow}
+ * bytes downloaded per {@code windowMillis}. Its requests give way to the ones of the visible screen.
+ * Must only be used from the main thread.
+ */
+public class UvDetailPrefetcher {
+    private final int maxConcurrentRequests;
+    private final long maxBytesPerWindow;
+    private final long windowMillis;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Deque<String> queue = new ArrayDeque<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private final List<PrefetchCallback> callbacks = new ArrayList<>();
+
+    private long windowStart;
+    private long bytesInWindow;
+
+    private final Runnable pumpRunnable = new Runnable() {
+        @Override
+        public void run() {
+            pump();
+        }
+    };
+
+    public UvDetailPrefetcher(int maxConcurrentRequests, long maxBytesPerWindow, long windowMillis) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxBytesPerWindow = maxBytesPerWindow;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Replaces the queued UVs with {@code uvNames}, in order of priority.
+     * Requests already in flight are not interrupted.
+     */
+    public void prefetch(List<String> uvNames) {
+        queue.clear();
+        for (String uvName : uvNames) {
+            if (!inFlight.contains(uvName) && !UvwebProvider.isUvDetailCached(uvName)) {
+                queue.add(uvName);
+            }
+        }
+        pump();
+    }
+
+    /**
+     * Drops the queued UVs and stops listening to the requests in flight.
+     */
+    public void cancel() {
+        queue.clear();
+        handler.removeCallbacks(pumpRunnable);
+        for (PrefetchCallback callback : callbacks) {
+            if (callback.token != null) {
+                callback.token.cancel();
+            }
+        }
+        callbacks.clear();
+        inFlight.clear();
+    }
+
+    private void pump() {
+        handler.removeCallbacks(pumpRunnable);
+        while (inFlight.size() < maxConcurrentRequests && !queue.isEmpty()) {
+            long now = SystemClock.elapsedRealtime();
+            if (now - windowStart >= windowMillis) {
+                windowStart = now;
+                bytesInWindow = 0;
+            }
+            if (bytesInWindow >= maxBytesPerWindow) {
+                handler.postDelayed(pumpRunnable, windowStart + windowMillis - now);
+                return;
+            }
+
+            String uvName = queue.poll();
+            if (UvwebProvider.isUvDetailCached(uvName)) {
+                continue;
+            }
+            PrefetchCallback callback = new PrefetchCallback(uvName);
+            inFlight.add(uvName);
+            callbacks.add(callback);
+            callback.token = UvwebProvider.fetchUvDetail(uvName, RequestScheduler.PRIORITY_PREFETCH).addCallback(callback);
+        }
+    }
+
+    private void onPrefetched(PrefetchCallback callback, long bytes) {
+        if (!callbacks.remove(callback)) {
+            return;
+        }
+        inFlight.remove(callback.uvName);
+        bytesInWindow += bytes;
+        pump();
+    }
+
+    private class PrefetchCallback implements Callback<UvDetail> {
+        final String uvName;
+        CancellationToken token;
+
+        PrefetchCallback(String uvName) {
+            this.uvName = uvName;
+        }
+
+        @Override
+        public void success(UvDetail uvDetail, Response response) {
+            long bytes = response != null && response.getBody() != null ? response.getBody().length() : 0;
+            onPrefetched(this, Math.max(bytes, 0));
+        }
+
+        @Override
+        public void failure(RetrofitError error) {
+            onPrefetched(this, 0);
+        }
+    }
+}
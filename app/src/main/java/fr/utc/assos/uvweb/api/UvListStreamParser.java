@@ -0,0 +1,106 @@
+package fr.utc.assos.uvweb.api;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Parses a JSON array of UVs as its bytes arrive and hands them over in batches, so that the list
+ * can be displayed before the catalogue is fully downloaded. Only the current batch is kept:
+ * neither the body nor the items already handed over are retained.
+ * <p>
+ * The first batch is small enough to fill a screen, and the following ones double in size
+ * so that the consumer is not notified more than a logarithmic number of times.
+ */
+final class UvListStreamParser {
+    private static final int FIRST_BATCH_SIZE = 32;
+    private static final int MAX_BATCH_SIZE = 512;
+
+    private UvListStreamParser() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * Reads the whole array, calling {@code listener} on the current thread. Closes {@code in}.
+     *
+     * @return the number of UVs read
+     */
+    static int parse(InputStream in, BatchListener listener) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            int count = 0;
+            int batchSize = FIRST_BATCH_SIZE;
+            List<UvListItem> batch = new ArrayList<>(batchSize);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                UvListItem uv = ModelTypeAdapterFactory.UV_LIST_ITEM.read(reader);
+                if (uv != null) {
+                    batch.add(uv);
+                }
+                if (batch.size() == batchSize) {
+                    count += batch.size();
+                    listener.onBatch(batch);
+                    batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            reader.endArray();
+            if (!batch.isEmpty()) {
+                count += batch.size();
+                listener.onBatch(batch);
+            }
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+
+    interface BatchListener {
+        /**
+         * @param batch the UVs following the previous batch, owned by the listener from now on
+         */
+        void onBatch(List<UvListItem> batch);
+    }
+
+    /**
+     * Sums the time spent waiting for the bytes of the body, so that it can be told apart from the time spent parsing.
+     */
+    static final class TimedInputStream extends FilterInputStream {
+        private long readNanos;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(buffer, offset, count);
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        long getReadNanos() {
+            return readNanos;
+        }
+    }
+}
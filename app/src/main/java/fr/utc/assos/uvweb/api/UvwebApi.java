@@ -3,18 +3,44 @@ package fr.utc.assos.uvweb.api;
 import java.util.List;
 
 import fr.utc.assos.uvweb.model.Newsfeed;
+import fr.utc.assos.uvweb.model.UvCatalogueDelta;
 import fr.utc.assos.uvweb.model.UvDetail;
 import fr.utc.assos.uvweb.model.UvListItem;
 import retrofit.Callback;
+import retrofit.client.Response;
 import retrofit.http.GET;
+import retrofit.http.Headers;
 import retrofit.http.Path;
+import retrofit.http.Query;
+import retrofit.http.Streaming;
 
 public interface UvwebApi {
+    /**
+     * Version of the full catalogue, sent by the server along with it to ask the first delta from.
+     */
+    String HEADER_CATALOGUE_VERSION = "X-Catalogue-Version";
+
+    /**
+     * Returns as soon as the headers are received, leaving the body to be read with {@link UvListStreamParser}.
+     * Blocks, so must not be called from the main thread.
+     */
+    @Streaming
+    @Headers(CachingClient.HEADER_STREAMING + ": true")
     @GET("/uv/app/all/name/false")
-    void getUvs(Callback<List<UvListItem>> callback);
+    Response streamUvs();
+
+    /**
+     * @param since the {@link UvCatalogueDelta#getVersion()} of the previous delta,
+     *              or the {@link #HEADER_CATALOGUE_VERSION} of the last full catalogue
+     */
+    @GET("/uv/app/changes")
+    void getUvChanges(@Query("since") long since, Callback<UvCatalogueDelta> callback);
 
+    /**
+     * @param cursor the {@link Newsfeed#getNextCursor()} of the previous page, or null for the first page
+     */
     @GET("/app/recentactivity")
-    void getNewsfeed(Callback<Newsfeed> callback);
+    void getNewsfeed(@Query("cursor") String cursor, @Query("limit") int limit, Callback<Newsfeed> callback);
 
     @GET("/uv/app/details/{uvname}")
     void getUvDetail(@Path("uvname") String uvName, Callback<UvDetail> callback);
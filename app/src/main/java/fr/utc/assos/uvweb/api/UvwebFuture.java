@@ -0,0 +1,398 @@
+package fr.utc.assos.uvweb.api;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Result of a request started through {@link UvwebProvider}, delivered on the main thread.
+ * <p>
+ * A future may publish a provisional value before completing, as the catalogue does with its stored copy:
+ * callbacks receive every value, while the combinators only see the final one.
+ * Cancelling a future aborts the underlying HTTP call once no other future waits for it,
+ * and cancels the futures it was derived from.
+ * Must only be used from the main thread.
+ */
+public final class UvwebFuture<T> implements CancellationToken {
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_SUCCEEDED = 1;
+    private static final int STATE_FAILED = 2;
+    private static final int STATE_CANCELLED = 3;
+
+    private final List<Callback<T>> callbacks = new ArrayList<>();
+    private final List<Runnable> cancelActions = new ArrayList<>();
+    private int state = STATE_PENDING;
+    private T value;
+    private boolean hasValue;
+    private Response response;
+    private RetrofitError error;
+
+    UvwebFuture() {
+    }
+
+    /**
+     * @return a future already completed with {@code value}
+     */
+    public static <T> UvwebFuture<T> completed(T value) {
+        UvwebFuture<T> future = new UvwebFuture<>();
+        future.succeed(value, null);
+        return future;
+    }
+
+    /**
+     * Registers a callback for the values and the failure of this future. Values already published are replayed.
+     */
+    public UvwebFuture<T> addCallback(Callback<T> callback) {
+        switch (state) {
+            case STATE_PENDING:
+                callbacks.add(callback);
+                if (hasValue && !(callback instanceof Completion)) {
+                    callback.success(value, null);
+                }
+                break;
+            case STATE_SUCCEEDED:
+                callback.success(value, response);
+                break;
+            case STATE_FAILED:
+                callback.failure(error);
+                break;
+            default:
+                break;
+        }
+        return this;
+    }
+
+    /**
+     * @return a future of the final value transformed by {@code function}
+     */
+    public <R> UvwebFuture<R> map(final Function<? super T, ? extends R> function) {
+        final UvwebFuture<R> mapped = new UvwebFuture<>();
+        mapped.onCancel(cancelAction(this));
+        onCompletion(new Completion<T>() {
+            @Override
+            void onSuccess(T result, Response response) {
+                mapped.succeed(function.apply(result), response);
+            }
+
+            @Override
+            void onFailure(RetrofitError error) {
+                mapped.fail(error);
+            }
+        });
+        return mapped;
+    }
+
+    /**
+     * @return a future of the final value, or of the value {@code function} makes of the failure
+     */
+    public UvwebFuture<T> recover(final Function<? super RetrofitError, ? extends T> function) {
+        final UvwebFuture<T> recovered = new UvwebFuture<>();
+        recovered.onCancel(cancelAction(this));
+        onCompletion(new Completion<T>() {
+            @Override
+            void onSuccess(T result, Response response) {
+                recovered.succeed(result, response);
+            }
+
+            @Override
+            void onFailure(RetrofitError error) {
+                recovered.succeed(function.apply(error), null);
+            }
+        });
+        return recovered;
+    }
+
+    /**
+     * Chains a request depending on the final value of this one.
+     */
+    public <R> UvwebFuture<R> then(final AsyncFunction<? super T, R> function) {
+        final UvwebFuture<R> chained = new UvwebFuture<>();
+        chained.onCancel(cancelAction(this));
+        onCompletion(new Completion<T>() {
+            @Override
+            void onSuccess(T result, Response response) {
+                if (chained.isDone()) {
+                    return;
+                }
+                UvwebFuture<R> next = function.apply(result);
+                chained.onCancel(cancelAction(next));
+                next.onCompletion(new Completion<R>() {
+                    @Override
+                    void onSuccess(R nextResult, Response nextResponse) {
+                        chained.succeed(nextResult, nextResponse);
+                    }
+
+                    @Override
+                    void onFailure(RetrofitError error) {
+                        chained.fail(error);
+                    }
+                });
+            }
+
+            @Override
+            void onFailure(RetrofitError error) {
+                chained.fail(error);
+            }
+        });
+        return chained;
+    }
+
+    /**
+     * Fails this future with a network error and cancels its request if it has not completed in time.
+     */
+    public UvwebFuture<T> timeout(long timeout, TimeUnit unit) {
+        if (isDone()) {
+            return this;
+        }
+        final Runnable expire = new Runnable() {
+            @Override
+            public void run() {
+                if (!isDone()) {
+                    RetrofitError timeoutError = RetrofitError.networkError(null, new InterruptedIOException("Request timed out"));
+                    runCancelActions();
+                    fail(timeoutError);
+                }
+            }
+        };
+        MAIN_HANDLER.postDelayed(expire, unit.toMillis(timeout));
+        onCompletion(new Completion<T>() {
+            @Override
+            void onSuccess(T result, Response response) {
+                MAIN_HANDLER.removeCallbacks(expire);
+            }
+
+            @Override
+            void onFailure(RetrofitError error) {
+                MAIN_HANDLER.removeCallbacks(expire);
+            }
+        });
+        onCancel(new Runnable() {
+            @Override
+            public void run() {
+                MAIN_HANDLER.removeCallbacks(expire);
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Runs two requests in parallel and combines their final values. The first failure fails the result
+     * and cancels the other request.
+     */
+    public static <A, B, R> UvwebFuture<R> zip(UvwebFuture<A> first, UvwebFuture<B> second,
+                                               final Combiner<? super A, ? super B, ? extends R> combiner) {
+        List<UvwebFuture<?>> futures = new ArrayList<>();
+        futures.add(first);
+        futures.add(second);
+        return allOf(futures).map(new Function<List<Object>, R>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public R apply(List<Object> results) {
+                return combiner.combine((A) results.get(0), (B) results.get(1));
+            }
+        });
+    }
+
+    /**
+     * Runs requests in parallel and collects their final values in order. The first failure fails the result
+     * and cancels the other requests.
+     */
+    public static <T> UvwebFuture<List<T>> all(List<UvwebFuture<T>> futures) {
+        return allOf(new ArrayList<UvwebFuture<?>>(futures)).map(new Function<List<Object>, List<T>>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public List<T> apply(List<Object> results) {
+                return (List<T>) (List<?>) results;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static UvwebFuture<List<Object>> allOf(final List<UvwebFuture<?>> futures) {
+        final UvwebFuture<List<Object>> combined = new UvwebFuture<>();
+        if (futures.isEmpty()) {
+            combined.succeed(Collections.<Object>emptyList(), null);
+            return combined;
+        }
+        final Object[] results = new Object[futures.size()];
+        final int[] remaining = {futures.size()};
+        for (int i = 0; i < futures.size(); i++) {
+            final int index = i;
+            UvwebFuture<Object> future = (UvwebFuture<Object>) futures.get(i);
+            combined.onCancel(cancelAction(future));
+            future.onCompletion(new Completion<Object>() {
+                @Override
+                void onSuccess(Object result, Response response) {
+                    results[index] = result;
+                    if (--remaining[0] == 0) {
+                        List<Object> list = new ArrayList<>(results.length);
+                        Collections.addAll(list, results);
+                        combined.succeed(list, null);
+                    }
+                }
+
+                @Override
+                void onFailure(RetrofitError error) {
+                    if (!combined.isDone()) {
+                        combined.runCancelActions();
+                        combined.fail(error);
+                    }
+                }
+            });
+        }
+        return combined;
+    }
+
+    /**
+     * Stops the delivery of values, and aborts the request if nobody else is waiting for it.
+     */
+    @Override
+    public void cancel() {
+        if (state != STATE_PENDING) {
+            return;
+        }
+        state = STATE_CANCELLED;
+        callbacks.clear();
+        runCancelActions();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state == STATE_CANCELLED;
+    }
+
+    public boolean isDone() {
+        return state != STATE_PENDING;
+    }
+
+    void onCancel(Runnable action) {
+        if (state == STATE_PENDING) {
+            cancelActions.add(action);
+        }
+    }
+
+    void publish(T provisionalValue) {
+        if (state != STATE_PENDING) {
+            return;
+        }
+        value = provisionalValue;
+        hasValue = true;
+        for (Callback<T> callback : new ArrayList<>(callbacks)) {
+            if (!(callback instanceof Completion)) {
+                callback.success(provisionalValue, null);
+            }
+        }
+    }
+
+    void succeed(T finalValue, Response finalResponse) {
+        if (state != STATE_PENDING) {
+            return;
+        }
+        state = STATE_SUCCEEDED;
+        value = finalValue;
+        hasValue = true;
+        response = finalResponse;
+        cancelActions.clear();
+        for (Callback<T> callback : callbacks) {
+            callback.success(finalValue, finalResponse);
+        }
+        callbacks.clear();
+    }
+
+    /**
+     * Completes with the last provisional value, without notifying the callbacks again.
+     */
+    void finish() {
+        if (state != STATE_PENDING) {
+            return;
+        }
+        state = STATE_SUCCEEDED;
+        cancelActions.clear();
+        List<Callback<T>> completionCallbacks = new ArrayList<>();
+        for (Callback<T> callback : callbacks) {
+            if (callback instanceof Completion) {
+                completionCallbacks.add(callback);
+            }
+        }
+        callbacks.clear();
+        for (Callback<T> callback : completionCallbacks) {
+            callback.success(value, null);
+        }
+    }
+
+    void fail(RetrofitError failure) {
+        if (state != STATE_PENDING) {
+            return;
+        }
+        state = STATE_FAILED;
+        error = failure;
+        cancelActions.clear();
+        for (Callback<T> callback : callbacks) {
+            callback.failure(failure);
+        }
+        callbacks.clear();
+    }
+
+    private void onCompletion(Completion<T> completion) {
+        addCallback(completion);
+    }
+
+    private void runCancelActions() {
+        List<Runnable> actions = new ArrayList<>(cancelActions);
+        cancelActions.clear();
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    private static Runnable cancelAction(final UvwebFuture<?> future) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                future.cancel();
+            }
+        };
+    }
+
+    /**
+     * Callback that is not given provisional values.
+     */
+    private abstract static class Completion<T> implements Callback<T> {
+        @Override
+        public final void success(T result, Response response) {
+            onSuccess(result, response);
+        }
+
+        @Override
+        public final void failure(RetrofitError error) {
+            onFailure(error);
+        }
+
+        abstract void onSuccess(T result, Response response);
+
+        abstract void onFailure(RetrofitError error);
+    }
+
+    public interface Function<T, R> {
+        R apply(T input);
+    }
+
+    public interface AsyncFunction<T, R> {
+        UvwebFuture<R> apply(T input);
+    }
+
+    public interface Combiner<A, B, R> {
+        R combine(A first, B second);
+    }
+}
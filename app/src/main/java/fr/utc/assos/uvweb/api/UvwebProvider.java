@@ -1,34 +1,872 @@
 package fr.utc.assos.uvweb.api;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.StartupTimings;
+import fr.utc.assos.uvweb.data.SyncedDataStore;
+import fr.utc.assos.uvweb.data.UvCataloguePrefix;
+import fr.utc.assos.uvweb.data.UvCatalogueStore;
+import fr.utc.assos.uvweb.data.UvFullTextIndex;
+import fr.utc.assos.uvweb.data.UvwebRepository;
 import fr.utc.assos.uvweb.model.Newsfeed;
+import fr.utc.assos.uvweb.model.UvCatalogueDelta;
 import fr.utc.assos.uvweb.model.UvDetail;
+import fr.utc.assos.uvweb.model.UvDetailContainer;
 import fr.utc.assos.uvweb.model.UvListItem;
 import retrofit.Callback;
 import retrofit.RestAdapter;
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+import retrofit.converter.GsonConverter;
 
 public final class UvwebProvider {
+    private static final String TAG = UvwebProvider.class.getSimpleName();
+
+    private static final String ENDPOINT = "https://assos.utc.fr/uvweb";
+    private static final String HTTP_CACHE_DIRECTORY = "http";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
+    private static final long UV_DETAIL_FRESHNESS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_CONCURRENT_REQUESTS = 3;
+    /**
+     * Twice the sync interval, so that a sync skipped for lack of Wi-Fi or power does not send the app to the network.
+     */
+    private static final long SYNCED_DATA_FRESHNESS = TimeUnit.HOURS.toMillis(12);
+    /**
+     * Same as the page size of the newsfeed screen, which the synced first page is served to.
+     */
+    private static final int SYNCED_NEWSFEED_LIMIT = 50;
+
     private UvwebProvider() {
         // Class should not be instantiated
     }
 
-    private static RestAdapter restAdapter = new RestAdapter.Builder()
-            .setEndpoint("https://assos.utc.fr/uvweb")
-            .setLogLevel(BuildConfig.DEBUG ? RestAdapter.LogLevel.FULL : RestAdapter.LogLevel.NONE)
-            .build();
-    private static UvwebApi uvwebApi = restAdapter.create(UvwebApi.class);
+    private static final String KEY_UVS = "uvs";
+    private static final String KEY_NEWSFEED = "newsfeed/";
+    private static final String KEY_UV_DETAIL = "uvdetail/";
+
+    private static final HttpCacheStats HTTP_CACHE_STATS = new HttpCacheStats();
+    private static final RequestMetrics REQUEST_METRICS = new RequestMetrics();
+    private static final RequestScheduler SCHEDULER = new RequestScheduler(MAX_CONCURRENT_REQUESTS);
+    private static final RequestCoalescer COALESCER = new RequestCoalescer(SCHEDULER);
+    private static final UvwebRepository REPOSITORY = UvwebRepository.getInstance();
+
+    private static Context applicationContext;
+    private static String endpoint;
+    private static volatile UvwebApi uvwebApi;
+    // Only accessed from the main thread
+    private static final Map<String, ApiCall> CALLS_AWAITING_API = new LinkedHashMap<>();
+
+    private static final Executor DISK_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            MAIN_HANDLER.post(runnable);
+        }
+    };
+
+    private static UvCatalogueStore catalogueStore;
+    private static SyncedDataStore syncedDataStore;
+    private static UvFullTextIndex fullTextIndex;
+    private static long catalogueFreshness = TimeUnit.HOURS.toMillis(1);
+    private static long catalogueMaxStale = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * Only creates the stores on the calling thread. The network stack and its converters are built on a startup
+     * thread, in parallel with the layout of the first screen. Requests made before it is ready are started
+     * once the startup thread hands it over, so that the main thread never waits for it.
+     */
+    public static void init(Context context) {
+        init(context, ENDPOINT);
+    }
+
+    /**
+     * @param endpoint the root URL of the API, which tests point to a local stand-in server
+     */
+    @VisibleForTesting
+    static void init(Context context, String endpoint) {
+        applicationContext = context.getApplicationContext();
+        setEndpoint(endpoint);
+        REQUEST_METRICS.setEnabled(BuildConfig.DEBUG);
+        catalogueStore = new UvCatalogueStore(context);
+        syncedDataStore = new SyncedDataStore(context, createGson());
+        fullTextIndex = new UvFullTextIndex(context);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                getApi();
+                StartupTimings.mark(StartupTimings.PHASE_NETWORK_READY);
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        startCallsAwaitingApi();
+                    }
+                });
+            }
+        }, "uvweb-startup").start();
+    }
+
+    /**
+     * Waits for the writes to the stores queued so far.
+     */
+    @VisibleForTesting
+    static void awaitDiskWrites() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        DISK_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+
+    private static synchronized void setEndpoint(String endpoint) {
+        UvwebProvider.endpoint = endpoint;
+        uvwebApi = null;
+    }
+
+    /**
+     * Starts {@code call} through the coalescer if the network stack is built, and once the startup thread
+     * has built it otherwise. Must be called from the main thread.
+     */
+    private static void scheduleApiCall(final String key, final ApiCall call) {
+        final UvwebApi api = uvwebApi;
+        if (api == null) {
+            // A call for the same key replaces the one its cancelled request left behind
+            CALLS_AWAITING_API.put(key, call);
+            return;
+        }
+        COALESCER.schedule(key, new Runnable() {
+            @Override
+            public void run() {
+                call.start(api);
+            }
+        });
+    }
+
+    private static void startCallsAwaitingApi() {
+        if (uvwebApi == null) {
+            // The endpoint changed since, and another startup thread is building the stack for it
+            return;
+        }
+        List<Map.Entry<String, ApiCall>> calls = new ArrayList<>(CALLS_AWAITING_API.entrySet());
+        CALLS_AWAITING_API.clear();
+        for (Map.Entry<String, ApiCall> call : calls) {
+            scheduleApiCall(call.getKey(), call.getValue());
+        }
+    }
+
+    /**
+     * Builds the network stack on the first call, which the other callers wait for. The startup thread
+     * makes that first call, unless a request thread comes first, in which case it runs the build itself.
+     * Must not be called from the main thread.
+     */
+    private static synchronized UvwebApi getApi() {
+        if (uvwebApi == null) {
+            HttpDiskCache httpCache = new HttpDiskCache(new File(applicationContext.getCacheDir(), HTTP_CACHE_DIRECTORY), HTTP_CACHE_SIZE);
+            Gson gson = createGson();
+            // Gson caches the adapter of each type on first use, which would otherwise happen on the first response
+            gson.getAdapter(UvCatalogueDelta.class);
+            gson.getAdapter(Newsfeed.class);
+            gson.getAdapter(UvDetail.class);
+            RestAdapter restAdapter = new RestAdapter.Builder()
+                    .setEndpoint(endpoint)
+                    .setClient(new CachingClient(new MeteredConnectionClient(REQUEST_METRICS), httpCache, HTTP_CACHE_STATS, REQUEST_METRICS))
+                    .setConverter(new CachingConverter(new GsonConverter(gson), HTTP_CACHE_STATS, REQUEST_METRICS))
+                    .setExecutors(SCHEDULER, MAIN_EXECUTOR)
+                    // FULL would read every body into memory before it reaches the streaming parser
+                    .setLogLevel(BuildConfig.DEBUG ? RestAdapter.LogLevel.HEADERS_AND_ARGS : RestAdapter.LogLevel.NONE)
+                    .build();
+            uvwebApi = restAdapter.create(UvwebApi.class);
+        }
+        return uvwebApi;
+    }
+
+    public static UvFullTextIndex getFullTextIndex() {
+        return fullTextIndex;
+    }
+
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+                .create();
+    }
+
+    public static HttpCacheStats getHttpCacheStats() {
+        return HTTP_CACHE_STATS;
+    }
+
+    /**
+     * Enabled in debug builds only.
+     */
+    public static RequestMetrics getRequestMetrics() {
+        return REQUEST_METRICS;
+    }
+
+    /**
+     * A stored catalogue younger than this is served without hitting the network.
+     */
+    public static void setCatalogueFreshness(long freshness, TimeUnit unit) {
+        catalogueFreshness = unit.toMillis(freshness);
+    }
+
+    /**
+     * A stored catalogue older than this is not displayed while the network request is running.
+     */
+    public static void setCatalogueMaxStale(long maxStale, TimeUnit unit) {
+        catalogueMaxStale = unit.toMillis(maxStale);
+    }
+
+    /**
+     * Serves the stored catalogue first, then revalidates it from the network once it is no longer fresh.
+     * The callback may thus succeed twice, and the {@link Response} is null when the data comes from the store.
+     * Revalidation only downloads the changes made since the stored version, unless the server cannot provide them.
+     * When nothing is stored, the catalogue is parsed while it downloads and the callback also succeeds
+     * with every longer prefix of it, so that the first screen is displayed early.
+     */
+    public static CancellationToken getUvs(Callback<List<UvListItem>> callback) {
+        return fetchUvs().addCallback(callback);
+    }
+
+    /**
+     * Same as {@link #getUvs(Callback)}. The stored catalogue is published as a provisional value,
+     * so the combinators only see the revalidated one.
+     */
+    public static UvwebFuture<List<UvListItem>> fetchUvs() {
+        return fetchUvs(RequestScheduler.PRIORITY_VISIBLE, false);
+    }
+
+    /**
+     * @param revalidate whether to revalidate the stored catalogue even if it is still fresh
+     */
+    private static UvwebFuture<List<UvListItem>> fetchUvs(int priority, final boolean revalidate) {
+        UvwebFuture<List<UvListItem>> future = new UvwebFuture<>();
+        if (!COALESCER.join(KEY_UVS, future, priority)) {
+            return future;
+        }
+        DISK_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long age = System.currentTimeMillis() - catalogueStore.getLastUpdate();
+                final List<UvListItem> storedUvs = age <= catalogueMaxStale ? catalogueStore.read() : null;
+                final long version = catalogueStore.getVersion();
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!COALESCER.isPending(KEY_UVS)) {
+                            return;
+                        }
+                        boolean delivered = storedUvs != null && !storedUvs.isEmpty();
+                        if (delivered) {
+                            REPOSITORY.setUvs(storedUvs);
+                            COALESCER.publish(KEY_UVS, storedUvs);
+                        }
+                        boolean stale = revalidate || age > catalogueFreshness;
+                        if (delivered && stale && version != 0) {
+                            scheduleApiCall(KEY_UVS, new ApiCall() {
+                                @Override
+                                void start(UvwebApi api) {
+                                    api.getUvChanges(version, new DeltaCallback(storedUvs));
+                                }
+                            });
+                        } else if (!delivered || stale) {
+                            scheduleFullCatalogue(delivered);
+                        } else {
+                            COALESCER.finish(KEY_UVS);
+                        }
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    private static void scheduleFullCatalogue(final boolean storedDataDelivered) {
+        COALESCER.schedule(KEY_UVS, new Runnable() {
+            @Override
+            public void run() {
+                SCHEDULER.execute(new CatalogueStreamTask(storedDataDelivered));
+            }
+        });
+    }
+
+    /**
+     * @param cursor the {@link Newsfeed#getNextCursor()} of the previous page, or null for the first page
+     * @param limit    the maximum number of comments in the page
+     * @param priority one of the {@link RequestScheduler} priorities
+     */
+    public static CancellationToken getNewsfeed(String cursor, int limit, int priority, Callback<Newsfeed> callback) {
+        return fetchNewsfeed(cursor, limit, priority).addCallback(callback);
+    }
+
+    /**
+     * Same as {@link #getNewsfeed(String, int, int, Callback)}. The first page is published from the last sync
+     * when it is recent enough, with a null {@link Response}, then revalidated: the callback may thus succeed twice.
+     */
+    public static UvwebFuture<Newsfeed> fetchNewsfeed(String cursor, int limit, int priority) {
+        return fetchNewsfeed(cursor, limit, priority, cursor == null);
+    }
+
+    private static UvwebFuture<Newsfeed> fetchNewsfeed(final String cursor, final int limit, int priority, boolean useSyncedCopy) {
+        final String key = KEY_NEWSFEED + limit + '/' + (cursor == null ? "" : cursor);
+        UvwebFuture<Newsfeed> future = new UvwebFuture<>();
+        if (!COALESCER.join(key, future, priority)) {
+            return future;
+        }
+        ApiCall call = new ApiCall() {
+            @Override
+            void start(UvwebApi api) {
+                api.getNewsfeed(cursor, limit, new NewsfeedCallback(key));
+            }
+        };
+        if (!useSyncedCopy) {
+            scheduleApiCall(key, call);
+            return future;
+        }
+        scheduleUnlessSynced(key, call, new SyncedCopy<Newsfeed>() {
+            @Override
+            Newsfeed read() {
+                return syncedDataStore.readNewsfeed(SYNCED_DATA_FRESHNESS);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Details fetched less than a few minutes ago are served from memory. Details of recently viewed UVs
+     * are published from the last sync, with a null {@link Response}, then revalidated: the callback may thus
+     * succeed twice.
+     */
+    public static CancellationToken getUvDetail(String name, Callback<UvDetail> callback) {
+        return fetchUvDetail(name).addCallback(callback);
+    }
+
+    /**
+     * Same as {@link #getUvDetail(String, Callback)}.
+     */
+    public static UvwebFuture<UvDetail> fetchUvDetail(final String name) {
+        DISK_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                syncedDataStore.addRecentUv(name);
+            }
+        });
+        return fetchUvDetail(name, RequestScheduler.PRIORITY_VISIBLE);
+    }
+
+    static UvwebFuture<UvDetail> fetchUvDetail(String name, int priority) {
+        return fetchUvDetail(name, priority, true);
+    }
+
+    private static UvwebFuture<UvDetail> fetchUvDetail(final String name, int priority, boolean useStoredCopy) {
+        UvDetailContainer cachedDetail = useStoredCopy ? REPOSITORY.getUvDetail(name, UV_DETAIL_FRESHNESS) : null;
+        if (cachedDetail != null) {
+            return UvwebFuture.completed(new UvDetail(cachedDetail));
+        }
+        final String key = KEY_UV_DETAIL + name;
+        UvwebFuture<UvDetail> future = new UvwebFuture<>();
+        if (!COALESCER.join(key, future, priority)) {
+            return future;
+        }
+        ApiCall call = new ApiCall() {
+            @Override
+            void start(UvwebApi api) {
+                api.getUvDetail(name, new UvDetailCallback(name, key));
+            }
+        };
+        if (!useStoredCopy) {
+            scheduleApiCall(key, call);
+            return future;
+        }
+        scheduleUnlessSynced(key, call, new SyncedCopy<UvDetail>() {
+            @Override
+            UvDetail read() {
+                return syncedDataStore.readUvDetail(name, SYNCED_DATA_FRESHNESS);
+            }
+
+            @Override
+            void onServed(UvDetail uvDetail) {
+                if (uvDetail.getDetail() != null) {
+                    REPOSITORY.setUvDetail(name, uvDetail.getDetail());
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Publishes the synced copy as a provisional value if there is a recent one, then starts {@code call}
+     * to revalidate it, as the stored catalogue is.
+     */
+    private static <T> void scheduleUnlessSynced(final String key, final ApiCall call, final SyncedCopy<T> syncedCopy) {
+        DISK_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final T copy = syncedCopy.read();
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!COALESCER.isPending(key)) {
+                            return;
+                        }
+                        if (copy != null) {
+                            syncedCopy.onServed(copy);
+                            COALESCER.publish(key, copy);
+                        }
+                        scheduleApiCall(key, call);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Refreshes the catalogue, the first newsfeed page and the details of the recently viewed UVs
+     * into the local stores, at {@link RequestScheduler#PRIORITY_BACKGROUND_SYNC}.
+     * A UV detail that cannot be refreshed does not fail the sync.
+     */
+    public static UvwebFuture<SyncReport> sync() {
+        final long startedAt = SystemClock.elapsedRealtime();
+        final long bytesBefore = HTTP_CACHE_STATS.getBytesTransferred();
+
+        UvwebFuture<List<UvListItem>> uvs = fetchUvs(RequestScheduler.PRIORITY_BACKGROUND_SYNC, true);
+        UvwebFuture<Newsfeed> newsfeed = fetchNewsfeed(null, SYNCED_NEWSFEED_LIMIT, RequestScheduler.PRIORITY_BACKGROUND_SYNC, false)
+                .map(new UvwebFuture.Function<Newsfeed, Newsfeed>() {
+                    @Override
+                    public Newsfeed apply(final Newsfeed page) {
+                        DISK_EXECUTOR.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                syncedDataStore.writeNewsfeed(page);
+                            }
+                        });
+                        return page;
+                    }
+                });
+        UvwebFuture<Integer> uvDetails = readOnDisk(new SyncedCopy<List<String>>() {
+            @Override
+            List<String> read() {
+                syncedDataStore.trimUvDetails();
+                return syncedDataStore.getRecentUvs();
+            }
+        }).then(new UvwebFuture.AsyncFunction<List<String>, Integer>() {
+            @Override
+            public UvwebFuture<Integer> apply(List<String> uvNames) {
+                List<UvwebFuture<Boolean>> refreshed = new ArrayList<>(uvNames.size());
+                for (String uvName : uvNames) {
+                    refreshed.add(syncUvDetail(uvName));
+                }
+                return UvwebFuture.all(refreshed).map(new UvwebFuture.Function<List<Boolean>, Integer>() {
+                    @Override
+                    public Integer apply(List<Boolean> results) {
+                        int count = 0;
+                        for (Boolean result : results) {
+                            count += result ? 1 : 0;
+                        }
+                        return count;
+                    }
+                });
+            }
+        });
+
+        return UvwebFuture.zip(UvwebFuture.zip(uvs, newsfeed, new UvwebFuture.Combiner<List<UvListItem>, Newsfeed, Void>() {
+            @Override
+            public Void combine(List<UvListItem> first, Newsfeed second) {
+                return null;
+            }
+        }), uvDetails, new UvwebFuture.Combiner<Void, Integer, SyncReport>() {
+            @Override
+            public SyncReport combine(Void ignored, Integer uvDetailCount) {
+                return new SyncReport(SystemClock.elapsedRealtime() - startedAt,
+                        HTTP_CACHE_STATS.getBytesTransferred() - bytesBefore, uvDetailCount);
+            }
+        });
+    }
+
+    /**
+     * @return a future of whether the detail could be refreshed
+     */
+    private static UvwebFuture<Boolean> syncUvDetail(final String uvName) {
+        return fetchUvDetail(uvName, RequestScheduler.PRIORITY_BACKGROUND_SYNC, false)
+                .map(new UvwebFuture.Function<UvDetail, Boolean>() {
+                    @Override
+                    public Boolean apply(final UvDetail uvDetail) {
+                        DISK_EXECUTOR.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                syncedDataStore.writeUvDetail(uvName, uvDetail);
+                            }
+                        });
+                        return true;
+                    }
+                })
+                .recover(new UvwebFuture.Function<RetrofitError, Boolean>() {
+                    @Override
+                    public Boolean apply(RetrofitError error) {
+                        Log.w(TAG, "Failed syncing the detail of " + uvName, error);
+                        return false;
+                    }
+                });
+    }
+
+    private static <T> UvwebFuture<T> readOnDisk(final SyncedCopy<T> syncedCopy) {
+        final UvwebFuture<T> future = new UvwebFuture<>();
+        DISK_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final T value = syncedCopy.read();
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        future.succeed(value, null);
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    public static boolean isUvDetailCached(String name) {
+        return REPOSITORY.getUvDetail(name, UV_DETAIL_FRESHNESS) != null;
+    }
+
+    /**
+     * Request to the API, started on the main thread once the network stack is built.
+     */
+    private abstract static class ApiCall {
+        /**
+         * Must start exactly one asynchronous Retrofit request, as required by {@link RequestCoalescer#schedule}.
+         */
+        abstract void start(UvwebApi api);
+    }
+
+    /**
+     * Data read from the {@link SyncedDataStore}, on the disk thread.
+     */
+    private abstract static class SyncedCopy<T> {
+        abstract T read();
+
+        /**
+         * Called on the main thread before the copy is delivered.
+         */
+        void onServed(T copy) {
+            // no-op
+        }
+    }
+
+    /**
+     * Callback of a request started by a call given to {@link RequestCoalescer#schedule}, and created within that call.
+     * A cancelled request may already have been replaced by a new one for the same key, so its outcome is dropped.
+     */
+    private abstract static class ScheduledCallback<T> implements Callback<T> {
+        private final RequestScheduler.ScheduledRequest request = SCHEDULER.getSchedulingRequest();
+
+        @Override
+        public final void success(T result, Response response) {
+            if (!isCancelled()) {
+                onSuccess(result, response);
+            }
+        }
+
+        @Override
+        public final void failure(RetrofitError error) {
+            if (!isCancelled()) {
+                onFailure(error);
+            }
+        }
+
+        abstract void onSuccess(T result, Response response);
+
+        abstract void onFailure(RetrofitError error);
 
-    public static void getUvs(Callback<List<UvListItem>> callback) {
-        uvwebApi.getUvs(callback);
+        private boolean isCancelled() {
+            return request != null && request.isCancelled();
+        }
     }
 
-    public static void getNewsfeed(Callback<Newsfeed> callback) {
-        uvwebApi.getNewsfeed(callback);
+    private static class NewsfeedCallback extends ScheduledCallback<Newsfeed> {
+        private final String key;
+
+        NewsfeedCallback(String key) {
+            this.key = key;
+        }
+
+        @Override
+        void onSuccess(final Newsfeed newsfeed, Response response) {
+            if (newsfeed.getComments() == null) {
+                COALESCER.success(key, newsfeed, response);
+                return;
+            }
+            DISK_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fullTextIndex.indexComments(newsfeed.getComments());
+                }
+            });
+            COALESCER.success(key, newsfeed, response);
+        }
+
+        @Override
+        void onFailure(RetrofitError error) {
+            if (!COALESCER.failUnlessPublished(key, error)) {
+                Log.w(TAG, "Failed revalidating the synced newsfeed", error);
+            }
+        }
+    }
+
+    private static class UvDetailCallback extends ScheduledCallback<UvDetail> {
+        private final String name;
+        private final String key;
+
+        UvDetailCallback(String name, String key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        void onSuccess(final UvDetail uvDetail, Response response) {
+            final UvDetailContainer detail = uvDetail.getDetail();
+            if (detail != null) {
+                REPOSITORY.setUvDetail(name, detail);
+                DISK_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        fullTextIndex.indexUvComments(name, detail.getComments());
+                    }
+                });
+            }
+            COALESCER.success(key, uvDetail, response);
+        }
+
+        @Override
+        void onFailure(RetrofitError error) {
+            if (!COALESCER.failUnlessPublished(key, error)) {
+                Log.w(TAG, "Failed revalidating the synced detail of " + name, error);
+            }
+        }
+    }
+
+    /**
+     * Downloads the full catalogue on a scheduler thread. When nothing is on screen yet,
+     * every parsed batch is published as a provisional catalogue.
+     */
+    private static class CatalogueStreamTask implements Runnable, UvListStreamParser.BatchListener {
+        private final boolean storedDataDelivered;
+        private final RevalidatingCallback callback;
+        // Only accessed from the main thread
+        private UvCataloguePrefix uvs = UvCataloguePrefix.start();
+        private RequestScheduler.ScheduledRequest request;
+
+        CatalogueStreamTask(boolean storedDataDelivered) {
+            this.storedDataDelivered = storedDataDelivered;
+            callback = new RevalidatingCallback(storedDataDelivered);
+        }
+
+        @Override
+        public void run() {
+            request = RequestScheduler.getRunningRequest();
+            Response response;
+            try {
+                response = getApi().streamUvs();
+            } catch (RetrofitError error) {
+                deliverFailure(error);
+                return;
+            }
+            long start = System.nanoTime();
+            UvListStreamParser.TimedInputStream in;
+            try {
+                in = new UvListStreamParser.TimedInputStream(response.getBody().in());
+                UvListStreamParser.parse(in, this);
+            } catch (MalformedJsonException e) {
+                deliverFailure(RetrofitError.unexpectedError(response.getUrl(), e));
+                return;
+            } catch (IOException e) {
+                deliverFailure(RetrofitError.networkError(response.getUrl(), e));
+                return;
+            } catch (RuntimeException e) {
+                deliverFailure(RetrofitError.unexpectedError(response.getUrl(), e));
+                return;
+            }
+            // Leaves out the time spent waiting for the network between the parsed bytes
+            REQUEST_METRICS.record(RequestMetrics.ENDPOINT_UVS, RequestMetrics.METRIC_PARSE,
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start - in.getReadNanos()));
+            deliverSuccess(response);
+        }
+
+        @Override
+        public void onBatch(final List<UvListItem> batch) {
+            MAIN_HANDLER.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    uvs = uvs.append(batch);
+                    if (!storedDataDelivered) {
+                        COALESCER.publish(KEY_UVS, uvs);
+                    }
+                }
+            });
+        }
+
+        private void deliverSuccess(final Response response) {
+            MAIN_HANDLER.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isCancelled()) {
+                        callback.success(uvs.complete(), response);
+                    }
+                }
+            });
+        }
+
+        private void deliverFailure(final RetrofitError error) {
+            MAIN_HANDLER.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isCancelled()) {
+                        callback.failure(error);
+                    }
+                }
+            });
+        }
+
+        /**
+         * A cancelled request may already have been replaced by a new one for the same key.
+         */
+        private boolean isCancelled() {
+            return request != null && request.isCancelled();
+        }
+    }
+
+    private static class RevalidatingCallback implements Callback<List<UvListItem>> {
+        private final boolean storedDataDelivered;
+
+        RevalidatingCallback(boolean storedDataDelivered) {
+            this.storedDataDelivered = storedDataDelivered;
+        }
+
+        @Override
+        public void success(final List<UvListItem> uvs, Response response) {
+            final long version = getCatalogueVersion(response);
+            DISK_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    catalogueStore.write(uvs, version);
+                    fullTextIndex.indexTitles(uvs);
+                }
+            });
+            REPOSITORY.setUvs(uvs);
+            COALESCER.success(KEY_UVS, uvs, response);
+        }
+
+        @Override
+        public void failure(RetrofitError error) {
+            if (storedDataDelivered) {
+                // The stored catalogue is already on screen, it is better than an error
+                Log.w(TAG, "Failed revalidating UV list", error);
+                COALESCER.finish(KEY_UVS);
+            } else {
+                COALESCER.failure(KEY_UVS, error);
+            }
+        }
+    }
+
+    private static class DeltaCallback extends ScheduledCallback<UvCatalogueDelta> {
+        private final List<UvListItem> storedUvs;
+
+        DeltaCallback(List<UvListItem> storedUvs) {
+            this.storedUvs = storedUvs;
+        }
+
+        @Override
+        void onSuccess(final UvCatalogueDelta delta, final Response response) {
+            if (delta.isEmpty()) {
+                // The stored catalogue is already on screen and on disk, only its version moves forward
+                DISK_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        catalogueStore.setVersion(delta.getVersion());
+                    }
+                });
+                COALESCER.finish(KEY_UVS);
+                return;
+            }
+            // Merging reads the whole stored catalogue, which is only decoded as it is read
+            DISK_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final List<UvListItem> uvs = delta.applyTo(storedUvs);
+                    MAIN_HANDLER.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (COALESCER.isPending(KEY_UVS)) {
+                                REPOSITORY.setUvs(uvs);
+                                COALESCER.success(KEY_UVS, uvs, response);
+                            }
+                        }
+                    });
+                    catalogueStore.applyDelta(uvs, delta);
+                    fullTextIndex.updateTitles(delta.getUpdated(), delta.getDeleted());
+                }
+            });
+        }
+
+        @Override
+        void onFailure(RetrofitError error) {
+            if (error.getKind() == RetrofitError.Kind.HTTP) {
+                // The server does not serve deltas, or not from this version anymore
+                Log.i(TAG, "Falling back to a full UV list fetch: " + error.getMessage());
+                scheduleFullCatalogue(true);
+            } else {
+                Log.w(TAG, "Failed fetching UV list changes", error);
+                COALESCER.finish(KEY_UVS);
+            }
+        }
     }
 
-    public static void getUvDetail(String name, Callback<UvDetail> callback) {
-        uvwebApi.getUvDetail(name, callback);
+    /**
+     * @return the {@link UvwebApi#HEADER_CATALOGUE_VERSION} of a full catalogue response,
+     * or 0 if it is missing so that the next revalidation fetches the full catalogue again
+     */
+    private static long getCatalogueVersion(Response response) {
+        if (response == null) {
+            return 0;
+        }
+        for (Header header : response.getHeaders()) {
+            if (UvwebApi.HEADER_CATALOGUE_VERSION.equalsIgnoreCase(header.getName()) && header.getValue() != null) {
+                try {
+                    return Long.parseLong(header.getValue().trim());
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Invalid catalogue version: " + header.getValue());
+                    return 0;
+                }
+            }
+        }
+        return 0;
     }
 }
@@ -0,0 +1,131 @@
+package fr.utc.assos.uvweb.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.Comment;
+
+/**
+ * Contiguous run of newsfeed pages kept in memory. Pages pushed out of the window are dropped,
+ * but their cursors are kept so that they can be loaded again when scrolling back.
+ * Must only be used from the main thread.
+ */
+public class NewsfeedWindow {
+    private final int maxPages;
+
+    /**
+     * Cursor of every page seen so far, the first page having a null cursor.
+     */
+    private final List<String> cursors = new ArrayList<>();
+    private final List<List<Comment>> pages = new ArrayList<>();
+    private final List<Comment> comments = new ArrayList<>();
+    private int firstPage;
+    private boolean lastPageLoaded;
+
+    public NewsfeedWindow(int maxPages) {
+        this.maxPages = maxPages;
+        cursors.add(null);
+    }
+
+    public int size() {
+        return comments.size();
+    }
+
+    public Comment get(int position) {
+        return comments.get(position);
+    }
+
+    public boolean isEmpty() {
+        return pages.isEmpty();
+    }
+
+    public boolean hasPrevious() {
+        return firstPage > 0;
+    }
+
+    public boolean hasNext() {
+        return !lastPageLoaded;
+    }
+
+    /**
+     * @return the cursor to request the page preceding the window with
+     */
+    public String getPreviousCursor() {
+        return cursors.get(firstPage - 1);
+    }
+
+    /**
+     * @return the cursor to request the page following the window with
+     */
+    public String getNextCursor() {
+        return cursors.get(firstPage + pages.size());
+    }
+
+    /**
+     * Adds the page following the window, evicting the first page if the window is full.
+     *
+     * @return the number of comments evicted from the start of the window
+     */
+    public int append(List<Comment> page, String nextCursor) {
+        int pageIndex = firstPage + pages.size();
+        if (nextCursor == null) {
+            lastPageLoaded = true;
+        } else if (cursors.size() == pageIndex + 1) {
+            cursors.add(nextCursor);
+        }
+        pages.add(nullToEmpty(page));
+        comments.addAll(nullToEmpty(page));
+
+        int evicted = 0;
+        if (pages.size() > maxPages) {
+            evicted = pages.remove(0).size();
+            comments.subList(0, evicted).clear();
+            firstPage++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Adds the page preceding the window, evicting the last page if the window is full.
+     *
+     * @return the number of comments evicted from the end of the window
+     */
+    public int prepend(List<Comment> page) {
+        pages.add(0, nullToEmpty(page));
+        comments.addAll(0, nullToEmpty(page));
+        firstPage--;
+
+        int evicted = 0;
+        if (pages.size() > maxPages) {
+            evicted = pages.remove(pages.size() - 1).size();
+            comments.subList(comments.size() - evicted, comments.size()).clear();
+            lastPageLoaded = false;
+        }
+        return evicted;
+    }
+
+    /**
+     * Replaces the first page with a fresher copy of it, as long as it is the only page loaded.
+     *
+     * @return true if the page was replaced
+     */
+    public boolean replaceFirstPage(List<Comment> page, String nextCursor) {
+        if (firstPage != 0 || pages.size() != 1) {
+            return false;
+        }
+        pages.set(0, nullToEmpty(page));
+        comments.clear();
+        comments.addAll(nullToEmpty(page));
+        cursors.subList(1, cursors.size()).clear();
+        if (nextCursor != null) {
+            cursors.add(nextCursor);
+        }
+        lastPageLoaded = nextCursor == null;
+        return true;
+    }
+
+    private static List<Comment> nullToEmpty(List<Comment> page) {
+        return page == null ? Collections.<Comment>emptyList() : page;
+    }
+}
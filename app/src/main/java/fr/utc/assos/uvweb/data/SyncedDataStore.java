@@ -0,0 +1,179 @@
+package fr.utc.assos.uvweb.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fr.utc.assos.uvweb.model.Newsfeed;
+import fr.utc.assos.uvweb.model.UvDetail;
+
+/**
+ * Copies of the first newsfeed page and of the recently viewed UV details, refreshed by the background sync
+ * so that opening the app does not have to wait for the network.
+ * Must not be used from the main thread.
+ */
+public class SyncedDataStore {
+    private static final String TAG = SyncedDataStore.class.getSimpleName();
+    private static final String DIRECTORY = "synced";
+    private static final String NEWSFEED_FILE = "newsfeed.json";
+    private static final String UV_DETAIL_FILE_PREFIX = "uv_";
+    private static final String JSON_EXTENSION = ".json";
+    private static final String PREF_RECENT_UVS = "pref_recent_uvs";
+    private static final String RECENT_UVS_SEPARATOR = "\n";
+    private static final int MAX_RECENT_UVS = 10;
+
+    private final File directory;
+    private final SharedPreferences preferences;
+    private final Gson gson;
+
+    public SyncedDataStore(Context context, Gson gson) {
+        directory = new File(context.getFilesDir(), DIRECTORY);
+        preferences = PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext());
+        this.gson = gson;
+    }
+
+    /**
+     * @return the first page stored less than {@code maxAge} milliseconds ago, null otherwise
+     */
+    public Newsfeed readNewsfeed(long maxAge) {
+        return read(new File(directory, NEWSFEED_FILE), maxAge, Newsfeed.class);
+    }
+
+    public void writeNewsfeed(Newsfeed newsfeed) {
+        write(new File(directory, NEWSFEED_FILE), newsfeed);
+    }
+
+    /**
+     * @return the detail stored less than {@code maxAge} milliseconds ago, null otherwise
+     */
+    public UvDetail readUvDetail(String uvName, long maxAge) {
+        return read(getUvDetailFile(uvName), maxAge, UvDetail.class);
+    }
+
+    public void writeUvDetail(String uvName, UvDetail detail) {
+        write(getUvDetailFile(uvName), detail);
+    }
+
+    /**
+     * Moves {@code uvName} to the front of the recently viewed UVs, forgetting the oldest ones
+     * along with their stored details.
+     */
+    public synchronized void addRecentUv(String uvName) {
+        List<String> recentUvs = getRecentUvs();
+        recentUvs.remove(uvName);
+        recentUvs.add(0, uvName);
+        while (recentUvs.size() > MAX_RECENT_UVS) {
+            getUvDetailFile(recentUvs.remove(recentUvs.size() - 1)).delete();
+        }
+        preferences.edit().putString(PREF_RECENT_UVS, TextUtils.join(RECENT_UVS_SEPARATOR, recentUvs)).apply();
+    }
+
+    /**
+     * @return the names of the recently viewed UVs, most recent first
+     */
+    public synchronized List<String> getRecentUvs() {
+        String recentUvs = preferences.getString(PREF_RECENT_UVS, null);
+        if (TextUtils.isEmpty(recentUvs)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(TextUtils.split(recentUvs, RECENT_UVS_SEPARATOR)));
+    }
+
+    /**
+     * Deletes the stored details of the UVs that are no longer recently viewed.
+     */
+    public synchronized void trimUvDetails() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Set<String> recentFiles = new HashSet<>();
+        for (String uvName : getRecentUvs()) {
+            recentFiles.add(getUvDetailFile(uvName).getName());
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(UV_DETAIL_FILE_PREFIX) && !recentFiles.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    private File getUvDetailFile(String uvName) {
+        try {
+            return new File(directory, UV_DETAIL_FILE_PREFIX + URLEncoder.encode(uvName, "UTF-8") + JSON_EXTENSION);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private <T> T read(File file, long maxAge, Class<T> type) {
+        if (!file.exists() || System.currentTimeMillis() - file.lastModified() > maxAge) {
+            return null;
+        }
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+            return gson.fromJson(reader, type);
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Failed reading " + file, e);
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void write(File file, Object value) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        File tmpFile = new File(directory, file.getName() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8");
+            gson.toJson(value, writer);
+            writer.close();
+            writer = null;
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed writing " + file, e);
+            tmpFile.delete();
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // no-op
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package fr.utc.assos.uvweb.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Part of the catalogue received so far while it downloads. The successive prefixes of a download
+ * share the list it appends to, so publishing one costs the same whatever the size of the catalogue.
+ * <p>
+ * Appending must only be done from the main thread. The prefix marked complete can be read from any thread.
+ */
+public final class UvCataloguePrefix extends AbstractList<UvListItem> implements RandomAccess {
+    private final List<UvListItem> received;
+    private final int size;
+    private final boolean complete;
+
+    private UvCataloguePrefix(List<UvListItem> received, int size, boolean complete) {
+        this.received = received;
+        this.size = size;
+        this.complete = complete;
+    }
+
+    /**
+     * @return the empty prefix of a new download
+     */
+    public static UvCataloguePrefix start() {
+        return new UvCataloguePrefix(new ArrayList<UvListItem>(), 0, false);
+    }
+
+    /**
+     * Appends the next UVs of the download, which must not have been completed.
+     *
+     * @return the prefix ending with those UVs
+     */
+    public UvCataloguePrefix append(List<UvListItem> batch) {
+        if (complete || size != received.size()) {
+            throw new IllegalStateException("Only the last prefix of a download in progress can be appended to");
+        }
+        received.addAll(batch);
+        return new UvCataloguePrefix(received, received.size(), false);
+    }
+
+    /**
+     * @return the whole catalogue, once the download is over
+     */
+    public UvCataloguePrefix complete() {
+        return new UvCataloguePrefix(received, received.size(), true);
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if {@code uvs} is an earlier prefix of the same download, which this one only appends to
+     */
+    public boolean extend(List<UvListItem> uvs) {
+        return uvs instanceof UvCataloguePrefix
+                && ((UvCataloguePrefix) uvs).received == received
+                && uvs.size() <= size;
+    }
+
+    @Override
+    public UvListItem get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return received.get(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,241 @@
+package fr.utc.assos.uvweb.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Binary copy of the UV catalogue, memory-mapped so that opening it costs the same whatever its size:
+ * UVs are only decoded once accessed.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header   magic, format version, catalogue version, update time, UV count, string pool offset
+ * records  one per UV: name offset, title offset, global rate, comment count
+ * pool     distinct strings, each as its UTF-8 length followed by its bytes
+ * </pre>
+ * String offsets are relative to the pool, -1 standing for null.
+ */
+public final class UvCatalogueSnapshot {
+    private static final int MAGIC = 0x55564353;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+    private static final int RECORD_SIZE = 4 + 4 + 4 + 4;
+    private static final int NULL_STRING = -1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final long version;
+    private final long updatedAt;
+    private final int size;
+    private final int poolOffset;
+
+    private UvCatalogueSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Not a catalogue snapshot, or of an older format");
+        }
+        version = buffer.getLong(8);
+        updatedAt = buffer.getLong(16);
+        size = buffer.getInt(24);
+        poolOffset = buffer.getInt(28);
+        if (size < 0 || poolOffset != HEADER_SIZE + (long) size * RECORD_SIZE || poolOffset > buffer.capacity()) {
+            throw new IOException("Truncated catalogue snapshot");
+        }
+    }
+
+    /**
+     * @return the mapped snapshot, or null if the file is missing or unreadable
+     */
+    public static UvCatalogueSnapshot map(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            FileChannel channel = input.getChannel();
+            // The mapping outlives the channel
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new UvCatalogueSnapshot(buffer);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ignored) {
+                    // no-op
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the snapshot atomically: readers see either the old or the new catalogue,
+     * and the old mapping stays valid.
+     */
+    public static void write(File file, List<UvListItem> uvs, long version, long updatedAt) throws IOException {
+        Map<String, Integer> stringOffsets = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] nameOffsets = new int[uvs.size()];
+        int[] titleOffsets = new int[uvs.size()];
+        int[] poolSize = {0};
+        for (int i = 0; i < uvs.size(); i++) {
+            nameOffsets[i] = addString(uvs.get(i).getName(), stringOffsets, strings, poolSize);
+            titleOffsets[i] = addString(uvs.get(i).getTitle(), stringOffsets, strings, poolSize);
+        }
+
+        File tmpFile = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(tmpFile);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(version);
+            out.writeLong(updatedAt);
+            out.writeInt(uvs.size());
+            out.writeInt(HEADER_SIZE + uvs.size() * RECORD_SIZE);
+            for (int i = 0; i < uvs.size(); i++) {
+                UvListItem uv = uvs.get(i);
+                out.writeInt(nameOffsets[i]);
+                out.writeInt(titleOffsets[i]);
+                out.writeFloat(uv.getGlobalRate());
+                out.writeInt(uv.getCommentCount());
+            }
+            for (byte[] string : strings) {
+                out.writeInt(string.length);
+                out.write(string);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            throw new IOException("Failed replacing " + file);
+        }
+    }
+
+    /**
+     * Updates the catalogue version and update time of the snapshot in place, without rewriting the catalogue.
+     * Not synced to disk: after a crash, the next revalidation asks for the same changes again.
+     */
+    public static void writeVersion(File file, long version, long updatedAt) throws IOException {
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.seek(8);
+            output.writeLong(version);
+            output.writeLong(updatedAt);
+        } finally {
+            output.close();
+        }
+    }
+
+    private static int addString(String value, Map<String, Integer> offsets, List<byte[]> strings, int[] poolSize) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+        Integer offset = offsets.get(value);
+        if (offset == null) {
+            byte[] bytes = value.getBytes(UTF_8);
+            offset = poolSize[0];
+            offsets.put(value, offset);
+            strings.add(bytes);
+            poolSize[0] += 4 + bytes.length;
+        }
+        return offset;
+    }
+
+    /**
+     * @return the version to ask the next delta from, or 0 if unknown
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the time at which the snapshot was written
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a read-only view of the catalogue, decoding each UV the first time it is accessed
+     */
+    public List<UvListItem> asList() {
+        return new UvList();
+    }
+
+    private UvListItem decode(int index) {
+        int record = HEADER_SIZE + index * RECORD_SIZE;
+        return new UvListItem(
+                readString(buffer.getInt(record)),
+                readString(buffer.getInt(record + 4)),
+                buffer.getFloat(record + 8),
+                buffer.getInt(record + 12));
+    }
+
+    private String readString(int offset) {
+        if (offset == NULL_STRING) {
+            return null;
+        }
+        int position = poolOffset + offset;
+        byte[] bytes = new byte[buffer.getInt(position)];
+        // Absolute bulk reads are not available, and the buffer position is shared
+        ByteBuffer reader = buffer.duplicate();
+        reader.position(position + 4);
+        reader.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Every access to a position returns the same instance, as the sort index and the adapter compare UVs
+     * by identity: of the UVs decoded by racing threads, the first one published wins.
+     */
+    private final class UvList extends AbstractList<UvListItem> implements RandomAccess {
+        private final AtomicReferenceArray<UvListItem> decoded = new AtomicReferenceArray<>(size);
+
+        @Override
+        public UvListItem get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            }
+            UvListItem uv = decoded.get(index);
+            if (uv == null) {
+                uv = decode(index);
+                if (!decoded.compareAndSet(index, null, uv)) {
+                    uv = decoded.get(index);
+                }
+            }
+            return uv;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
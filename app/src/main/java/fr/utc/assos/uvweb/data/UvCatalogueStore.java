@@ -0,0 +1,102 @@
+package fr.utc.assos.uvweb.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.UvCatalogueDelta;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Persists the UV catalogue so that the list can be displayed without waiting for the network.
+ * The catalogue is kept as a {@link UvCatalogueSnapshot}, so reading it does not depend on its size.
+ * Must not be used from the main thread.
+ */
+public class UvCatalogueStore {
+    private static final String TAG = UvCatalogueStore.class.getSimpleName();
+    private static final String SNAPSHOT_FILE = "catalogue.snapshot";
+
+    private final File file;
+    private UvCatalogueSnapshot snapshot;
+    private boolean mapped;
+
+    public UvCatalogueStore(Context context) {
+        file = new File(context.getFilesDir(), SNAPSHOT_FILE);
+    }
+
+    /**
+     * @return a read-only catalogue backed by the stored snapshot, or an empty list if there is none
+     */
+    public synchronized List<UvListItem> read() {
+        UvCatalogueSnapshot current = getSnapshot();
+        return current != null ? current.asList() : Collections.<UvListItem>emptyList();
+    }
+
+    /**
+     * Replaces the whole catalogue.
+     *
+     * @param version the version to ask the next delta from, or 0 if unknown
+     */
+    public synchronized void write(List<UvListItem> uvs, long version) {
+        try {
+            UvCatalogueSnapshot.write(file, uvs, version, System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed writing the catalogue snapshot", e);
+            file.delete();
+        }
+        // Mapped again when next read
+        snapshot = null;
+        mapped = false;
+    }
+
+    /**
+     * Rewrites the snapshot, which is cheap compared to the download of the delta.
+     *
+     * @param uvs the catalogue once the delta is applied, as returned by {@link UvCatalogueDelta#applyTo(List)}
+     */
+    public void applyDelta(List<UvListItem> uvs, UvCatalogueDelta delta) {
+        write(uvs, delta.getVersion());
+    }
+
+    /**
+     * Records that the catalogue is up to date as of {@code version}, when the delta from the stored version is empty.
+     */
+    public synchronized void setVersion(long version) {
+        try {
+            UvCatalogueSnapshot.writeVersion(file, version, System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed updating the catalogue version", e);
+        }
+        // Mapped again when next read
+        snapshot = null;
+        mapped = false;
+    }
+
+    /**
+     * @return the time at which the catalogue was last written, or 0 if it never was
+     */
+    public synchronized long getLastUpdate() {
+        UvCatalogueSnapshot current = getSnapshot();
+        return current != null ? current.getUpdatedAt() : 0;
+    }
+
+    /**
+     * @return the version to ask the next delta from, or 0 if a full catalogue must be fetched
+     */
+    public synchronized long getVersion() {
+        UvCatalogueSnapshot current = getSnapshot();
+        return current != null ? current.getVersion() : 0;
+    }
+
+    private UvCatalogueSnapshot getSnapshot() {
+        if (!mapped) {
+            snapshot = UvCatalogueSnapshot.map(file);
+            mapped = true;
+        }
+        return snapshot;
+    }
+}
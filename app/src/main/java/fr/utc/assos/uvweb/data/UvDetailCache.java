@@ -0,0 +1,88 @@
+package fr.utc.assos.uvweb.data;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.Poll;
+import fr.utc.assos.uvweb.model.UvDetailContainer;
+
+/**
+ * In-memory LRU of UV details, bounded by their approximate size in bytes.
+ */
+public class UvDetailCache {
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int LONG_SIZE = 8;
+    private static final int POLL_SIZE = OBJECT_OVERHEAD + 3 * REFERENCE_SIZE;
+
+    private final LruCache<String, Entry> entries;
+
+    public UvDetailCache(int maxBytes) {
+        entries = new LruCache<String, Entry>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Entry entry) {
+                return entry.size;
+            }
+        };
+    }
+
+    public void put(String uvName, UvDetailContainer detail) {
+        entries.put(uvName, new Entry(detail, SystemClock.elapsedRealtime(), estimateSize(uvName, detail)));
+    }
+
+    /**
+     * @return the detail if it was cached less than {@code maxAge} milliseconds ago, null otherwise
+     */
+    public UvDetailContainer get(String uvName, long maxAge) {
+        Entry entry = entries.get(uvName);
+        if (entry == null || SystemClock.elapsedRealtime() - entry.cachedAt > maxAge) {
+            return null;
+        }
+        return entry.detail;
+    }
+
+    public void clear() {
+        entries.evictAll();
+    }
+
+    static int estimateSize(String uvName, UvDetailContainer detail) {
+        int size = OBJECT_OVERHEAD + sizeOf(uvName);
+        if (detail.getUv() != null) {
+            size += OBJECT_OVERHEAD + sizeOf(detail.getUv().getName()) + sizeOf(detail.getUv().getTitle());
+        }
+        List<Comment> comments = detail.getComments();
+        if (comments != null) {
+            for (Comment comment : comments) {
+                // The semester and UV name are pooled, so they do not count
+                size += OBJECT_OVERHEAD + REFERENCE_SIZE + LONG_SIZE + sizeOf(comment.getAuthor()) + sizeOf(comment.getDate())
+                        + sizeOf(comment.getComment());
+            }
+        }
+        List<Poll> polls = detail.getPolls();
+        if (polls != null) {
+            for (Poll poll : polls) {
+                size += POLL_SIZE + sizeOf(poll.getSeason());
+            }
+        }
+        return size;
+    }
+
+    private static int sizeOf(String value) {
+        return value == null ? 0 : OBJECT_OVERHEAD + 2 * value.length();
+    }
+
+    private static final class Entry {
+        final UvDetailContainer detail;
+        final long cachedAt;
+        final int size;
+
+        Entry(UvDetailContainer detail, long cachedAt, int size) {
+            this.detail = detail;
+            this.cachedAt = cachedAt;
+            this.size = size;
+        }
+    }
+}
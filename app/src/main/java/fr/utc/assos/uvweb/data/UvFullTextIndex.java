@@ -0,0 +1,328 @@
+package fr.utc.assos.uvweb.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.UvListItem;
+import fr.utc.assos.uvweb.util.TextNormalizer;
+
+/**
+ * Persistent inverted index over the UV titles and the comments seen so far,
+ * with accent and case folding and ranked prefix matching.
+ * Must not be used from the main thread.
+ */
+public class UvFullTextIndex {
+    private static final int TITLE_WEIGHT = 10;
+    private static final int COMMENT_WEIGHT = 1;
+    private static final int EXACT_MATCH_FACTOR = 2;
+    private static final String DOCUMENT_TITLE = "";
+    private static final String TERM_UPPER_BOUND = "\uffff";
+
+    /**
+     * Prefixes up to this length match many terms, so their weights are summed beforehand like the terms ones.
+     */
+    private static final int MAX_SHORT_PREFIX_LENGTH = 3;
+
+    /**
+     * Rows of the UVs matching one word of the query, read from the weights summed over the documents
+     * so that a prefix costs one row per matching term and UV however many comments contain it.
+     */
+    private static final String QUERY_TERM = " AS token, " + UvwebDatabase.COLUMN_UV_NAME + ", CASE WHEN "
+            + UvwebDatabase.COLUMN_TERM + " = ? THEN " + UvwebDatabase.COLUMN_WEIGHT + " * " + EXACT_MATCH_FACTOR
+            + " ELSE " + UvwebDatabase.COLUMN_WEIGHT + " END AS score FROM " + UvwebDatabase.TABLE_SEARCH_TERMS
+            + " WHERE " + UvwebDatabase.COLUMN_TERM + " >= ? AND " + UvwebDatabase.COLUMN_TERM + " < ?";
+
+    /**
+     * Same rows for a short word, one per UV: the weight of the terms it prefixes, and the exact term one again.
+     */
+    private static final String QUERY_SHORT_PREFIX = " AS token, " + UvwebDatabase.COLUMN_UV_NAME + ", "
+            + UvwebDatabase.COLUMN_WEIGHT + " AS score FROM " + UvwebDatabase.TABLE_SEARCH_PREFIXES
+            + " WHERE " + UvwebDatabase.COLUMN_PREFIX + " = ?";
+    private static final String QUERY_EXACT_TERM = " AS token, " + UvwebDatabase.COLUMN_UV_NAME + ", "
+            + UvwebDatabase.COLUMN_WEIGHT + " * " + (EXACT_MATCH_FACTOR - 1) + " AS score FROM "
+            + UvwebDatabase.TABLE_SEARCH_TERMS + " WHERE " + UvwebDatabase.COLUMN_TERM + " = ?";
+
+    private final UvwebDatabase database;
+
+    public UvFullTextIndex(Context context) {
+        database = UvwebDatabase.getInstance(context);
+    }
+
+    public void indexTitles(List<UvListItem> uvs) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Writer writer = new Writer(db);
+            writer.deleteDocuments(UvwebDatabase.COLUMN_DOCUMENT + " = ?", new String[]{DOCUMENT_TITLE});
+            for (UvListItem uv : uvs) {
+                writer.insertDocument(uv.getName(), DOCUMENT_TITLE, uv.getTitle(), TITLE_WEIGHT);
+            }
+            writer.flush();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Reindexes the titles of the updated UVs and forgets everything about the deleted ones.
+     */
+    public void updateTitles(List<UvListItem> updated, List<String> deleted) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Writer writer = new Writer(db);
+            for (String uvName : deleted) {
+                writer.deleteDocuments(UvwebDatabase.COLUMN_UV_NAME + " = ?", new String[]{uvName});
+            }
+            for (UvListItem uv : updated) {
+                if (uv.getName() == null) {
+                    continue;
+                }
+                writer.deleteDocuments(UvwebDatabase.COLUMN_UV_NAME + " = ? AND " + UvwebDatabase.COLUMN_DOCUMENT + " = ?",
+                        new String[]{uv.getName(), DOCUMENT_TITLE});
+                writer.insertDocument(uv.getName(), DOCUMENT_TITLE, uv.getTitle(), TITLE_WEIGHT);
+            }
+            writer.flush();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Replaces the indexed comments of a UV.
+     */
+    public void indexUvComments(String uvName, List<Comment> comments) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Writer writer = new Writer(db);
+            writer.deleteDocuments(UvwebDatabase.COLUMN_UV_NAME + " = ? AND " + UvwebDatabase.COLUMN_DOCUMENT + " != ?",
+                    new String[]{uvName, DOCUMENT_TITLE});
+            for (Comment comment : comments) {
+                writer.insertDocument(uvName, getDocument(comment), comment.getComment(), COMMENT_WEIGHT);
+            }
+            writer.flush();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Adds comments that may belong to different UVs, such as the newsfeed ones.
+     */
+    public void indexComments(List<Comment> comments) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Writer writer = new Writer(db);
+            for (Comment comment : comments) {
+                if (comment.getUvName() == null) {
+                    continue;
+                }
+                String document = getDocument(comment);
+                writer.deleteDocuments(UvwebDatabase.COLUMN_UV_NAME + " = ? AND " + UvwebDatabase.COLUMN_DOCUMENT + " = ?",
+                        new String[]{comment.getUvName(), document});
+                writer.insertDocument(comment.getUvName(), document, comment.getComment(), COMMENT_WEIGHT);
+            }
+            writer.flush();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Every word of the query must prefix a word of the UV title or comments.
+     *
+     * @return the names of the matching UVs, best ranked first
+     */
+    public List<String> search(String query, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // The words are matched, summed and ranked in a single query, so that only the results are read back
+        StringBuilder sql = new StringBuilder("SELECT " + UvwebDatabase.COLUMN_UV_NAME + " FROM (");
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            String token = tokens.get(i);
+            if (token.length() <= MAX_SHORT_PREFIX_LENGTH) {
+                sql.append("SELECT ").append(i).append(QUERY_SHORT_PREFIX)
+                        .append(" UNION ALL SELECT ").append(i).append(QUERY_EXACT_TERM);
+                args.add(token);
+                args.add(token);
+            } else {
+                sql.append("SELECT ").append(i).append(QUERY_TERM);
+                args.add(token);
+                args.add(token);
+                args.add(token + TERM_UPPER_BOUND);
+            }
+        }
+        sql.append(") GROUP BY ").append(UvwebDatabase.COLUMN_UV_NAME);
+        // Every word matched, checked with plain aggregates as a distinct count of the words is much slower
+        for (int i = 0; i < tokens.size() && tokens.size() > 1; i++) {
+            sql.append(i == 0 ? " HAVING " : " AND ").append("MAX(token = ").append(i).append(')');
+        }
+        sql.append(" ORDER BY SUM(score) DESC, ").append(UvwebDatabase.COLUMN_UV_NAME)
+                .append(" LIMIT ?");
+        args.add(String.valueOf(limit));
+
+        List<String> uvNames = new ArrayList<>();
+        Cursor cursor = database.getReadableDatabase().rawQuery(sql.toString(), args.toArray(new String[args.size()]));
+        try {
+            while (cursor.moveToNext()) {
+                uvNames.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return uvNames;
+    }
+
+    private static String getDocument(Comment comment) {
+        return comment.getAuthor() + '/' + comment.getDate() + '/' + (comment.getComment() == null ? 0 : comment.getComment().hashCode());
+    }
+
+    /**
+     * Writes the terms of each document, and keeps their weight for each UV summed as documents come and go.
+     * Used within a transaction, and flushed before it is committed.
+     */
+    private static class Writer {
+        private final SQLiteDatabase db;
+        private final SQLiteStatement insertTerm;
+        private final SummedWeights termWeights;
+        private final SummedWeights prefixWeights;
+        // Changes of the summed weights by UV and term, applied once per transaction
+        private final Map<String, Map<String, Long>> weightChanges = new HashMap<>();
+
+        Writer(SQLiteDatabase db) {
+            this.db = db;
+            insertTerm = db.compileStatement("INSERT INTO " + UvwebDatabase.TABLE_SEARCH_INDEX + " ("
+                    + UvwebDatabase.COLUMN_TERM + ", " + UvwebDatabase.COLUMN_UV_NAME + ", "
+                    + UvwebDatabase.COLUMN_DOCUMENT + ", " + UvwebDatabase.COLUMN_WEIGHT + ") VALUES (?, ?, ?, ?)");
+            termWeights = new SummedWeights(db, UvwebDatabase.TABLE_SEARCH_TERMS, UvwebDatabase.COLUMN_TERM);
+            prefixWeights = new SummedWeights(db, UvwebDatabase.TABLE_SEARCH_PREFIXES, UvwebDatabase.COLUMN_PREFIX);
+        }
+
+        void insertDocument(String uvName, String document, String text, int weight) {
+            if (uvName == null || text == null) {
+                return;
+            }
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : TextNormalizer.tokenize(text)) {
+                Integer frequency = frequencies.get(token);
+                frequencies.put(token, frequency == null ? 1 : frequency + 1);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                insertTerm.bindString(1, entry.getKey());
+                insertTerm.bindString(2, uvName);
+                insertTerm.bindString(3, document);
+                insertTerm.bindLong(4, entry.getValue() * weight);
+                insertTerm.executeInsert();
+                changeWeight(uvName, entry.getKey(), entry.getValue() * weight);
+            }
+        }
+
+        /**
+         * Deletes the terms of the documents matching {@code whereClause}, and their weight from the UV sums.
+         */
+        void deleteDocuments(String whereClause, String[] whereArgs) {
+            Cursor cursor = db.query(UvwebDatabase.TABLE_SEARCH_INDEX, new String[]{UvwebDatabase.COLUMN_TERM,
+                    UvwebDatabase.COLUMN_UV_NAME, UvwebDatabase.COLUMN_WEIGHT}, whereClause, whereArgs, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    changeWeight(cursor.getString(1), cursor.getString(0), -cursor.getLong(2));
+                }
+            } finally {
+                cursor.close();
+            }
+            db.delete(UvwebDatabase.TABLE_SEARCH_INDEX, whereClause, whereArgs);
+        }
+
+        /**
+         * Applies the changes of the summed weights of the terms, and of their short prefixes.
+         */
+        void flush() {
+            for (Map.Entry<String, Map<String, Long>> uvChanges : weightChanges.entrySet()) {
+                String uvName = uvChanges.getKey();
+                Map<String, Long> prefixChanges = new HashMap<>();
+                for (Map.Entry<String, Long> change : uvChanges.getValue().entrySet()) {
+                    String term = change.getKey();
+                    long weight = change.getValue();
+                    termWeights.add(term, uvName, weight);
+                    for (int length = TextNormalizer.MIN_TOKEN_LENGTH; length <= Math.min(MAX_SHORT_PREFIX_LENGTH, term.length()); length++) {
+                        String prefix = term.substring(0, length);
+                        Long prefixWeight = prefixChanges.get(prefix);
+                        prefixChanges.put(prefix, prefixWeight == null ? weight : prefixWeight + weight);
+                    }
+                }
+                for (Map.Entry<String, Long> change : prefixChanges.entrySet()) {
+                    prefixWeights.add(change.getKey(), uvName, change.getValue());
+                }
+            }
+            weightChanges.clear();
+        }
+
+        private void changeWeight(String uvName, String term, long weight) {
+            Map<String, Long> uvChanges = weightChanges.get(uvName);
+            if (uvChanges == null) {
+                uvChanges = new HashMap<>();
+                weightChanges.put(uvName, uvChanges);
+            }
+            Long change = uvChanges.get(term);
+            uvChanges.put(term, change == null ? weight : change + weight);
+        }
+    }
+
+    /**
+     * Weights of a table with one row per key and UV, whose rows are deleted once their weight drops to zero.
+     */
+    private static class SummedWeights {
+        private final SQLiteStatement insert;
+        private final SQLiteStatement update;
+        private final SQLiteStatement deleteEmpty;
+
+        SummedWeights(SQLiteDatabase db, String table, String keyColumn) {
+            insert = db.compileStatement("INSERT OR IGNORE INTO " + table + " (" + keyColumn + ", "
+                    + UvwebDatabase.COLUMN_UV_NAME + ", " + UvwebDatabase.COLUMN_WEIGHT + ") VALUES (?, ?, 0)");
+            update = db.compileStatement("UPDATE " + table + " SET " + UvwebDatabase.COLUMN_WEIGHT + " = "
+                    + UvwebDatabase.COLUMN_WEIGHT + " + ? WHERE " + keyColumn + " = ? AND " + UvwebDatabase.COLUMN_UV_NAME + " = ?");
+            deleteEmpty = db.compileStatement("DELETE FROM " + table + " WHERE " + keyColumn + " = ? AND "
+                    + UvwebDatabase.COLUMN_UV_NAME + " = ? AND " + UvwebDatabase.COLUMN_WEIGHT + " <= 0");
+        }
+
+        void add(String key, String uvName, long weight) {
+            if (weight > 0) {
+                insert.bindString(1, key);
+                insert.bindString(2, uvName);
+                insert.executeInsert();
+            } else if (weight == 0) {
+                return;
+            }
+            update.bindLong(1, weight);
+            update.bindString(2, key);
+            update.bindString(3, uvName);
+            update.executeUpdateDelete();
+            if (weight < 0) {
+                deleteEmpty.bindString(1, key);
+                deleteEmpty.bindString(2, uvName);
+                deleteEmpty.executeUpdateDelete();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package fr.utc.assos.uvweb.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+public class UvwebDatabase extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "uvweb.db";
+    private static final int DATABASE_VERSION = 5;
+
+    /**
+     * No longer created, the catalogue being stored in a {@link UvCatalogueSnapshot}.
+     */
+    private static final String TABLE_UVS = "uvs";
+
+    public static final String TABLE_SEARCH_INDEX = "search_index";
+    public static final String COLUMN_TERM = "term";
+    public static final String COLUMN_UV_NAME = "uv_name";
+    public static final String COLUMN_DOCUMENT = "document";
+    public static final String COLUMN_WEIGHT = "weight";
+
+    /**
+     * Weight of each term for each UV, summed over the documents of {@link #TABLE_SEARCH_INDEX}.
+     */
+    public static final String TABLE_SEARCH_TERMS = "search_terms";
+
+    /**
+     * Weight of the terms starting with each short prefix for each UV.
+     */
+    public static final String TABLE_SEARCH_PREFIXES = "search_prefixes";
+    public static final String COLUMN_PREFIX = "prefix";
+
+    private static UvwebDatabase instance;
+
+    public static synchronized UvwebDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new UvwebDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UvwebDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_SEARCH_INDEX + " ("
+                + COLUMN_TERM + " TEXT NOT NULL, "
+                + COLUMN_UV_NAME + " TEXT NOT NULL, "
+                + COLUMN_DOCUMENT + " TEXT NOT NULL, "
+                + COLUMN_WEIGHT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX " + TABLE_SEARCH_INDEX + "_" + COLUMN_TERM
+                + " ON " + TABLE_SEARCH_INDEX + " (" + COLUMN_TERM + ")");
+        db.execSQL("CREATE INDEX " + TABLE_SEARCH_INDEX + "_" + COLUMN_DOCUMENT
+                + " ON " + TABLE_SEARCH_INDEX + " (" + COLUMN_UV_NAME + ", " + COLUMN_DOCUMENT + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SEARCH_TERMS + " ("
+                + COLUMN_TERM + " TEXT NOT NULL, "
+                + COLUMN_UV_NAME + " TEXT NOT NULL, "
+                + COLUMN_WEIGHT + " INTEGER NOT NULL, "
+                + "UNIQUE (" + COLUMN_TERM + ", " + COLUMN_UV_NAME + "))");
+        db.execSQL("CREATE INDEX " + TABLE_SEARCH_TERMS + "_" + COLUMN_WEIGHT + " ON " + TABLE_SEARCH_TERMS
+                + " (" + COLUMN_TERM + ", " + COLUMN_WEIGHT + " DESC, " + COLUMN_UV_NAME + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SEARCH_PREFIXES + " ("
+                + COLUMN_PREFIX + " TEXT NOT NULL, "
+                + COLUMN_UV_NAME + " TEXT NOT NULL, "
+                + COLUMN_WEIGHT + " INTEGER NOT NULL, "
+                + "UNIQUE (" + COLUMN_PREFIX + ", " + COLUMN_UV_NAME + "))");
+        db.execSQL("CREATE INDEX " + TABLE_SEARCH_PREFIXES + "_" + COLUMN_WEIGHT + " ON " + TABLE_SEARCH_PREFIXES
+                + " (" + COLUMN_PREFIX + ", " + COLUMN_WEIGHT + " DESC, " + COLUMN_UV_NAME + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The database only holds cached server data, it can be dropped safely
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_UVS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_INDEX);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_TERMS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_PREFIXES);
+        onCreate(db);
+    }
+}
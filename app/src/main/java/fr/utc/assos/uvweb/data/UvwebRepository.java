@@ -0,0 +1,64 @@
+package fr.utc.assos.uvweb.data;
+
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.UvDetailContainer;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Process-wide owner of the data displayed by the fragments. It survives configuration changes,
+ * so saved instance states only need to carry keys. After a process death it is empty again
+ * and the data is reloaded through the persistent caches.
+ * Must only be used from the main thread.
+ */
+public final class UvwebRepository {
+    private static final int UV_DETAIL_CACHE_SIZE = 2 * 1024 * 1024;
+
+    private static UvwebRepository instance;
+
+    private final UvDetailCache uvDetails = new UvDetailCache(UV_DETAIL_CACHE_SIZE);
+    private List<UvListItem> uvs;
+    private NewsfeedWindow newsfeed;
+
+    public static UvwebRepository getInstance() {
+        if (instance == null) {
+            instance = new UvwebRepository();
+        }
+        return instance;
+    }
+
+    private UvwebRepository() {
+        // Use getInstance()
+    }
+
+    public List<UvListItem> getUvs() {
+        return uvs;
+    }
+
+    public void setUvs(List<UvListItem> uvs) {
+        this.uvs = uvs;
+    }
+
+    public NewsfeedWindow getNewsfeed() {
+        return newsfeed;
+    }
+
+    public void setNewsfeed(NewsfeedWindow newsfeed) {
+        this.newsfeed = newsfeed;
+    }
+
+    /**
+     * @return the detail if it was loaded less than {@code maxAge} milliseconds ago, null otherwise
+     */
+    public UvDetailContainer getUvDetail(String uvName, long maxAge) {
+        return uvDetails.get(uvName, maxAge);
+    }
+
+    public UvDetailContainer getUvDetail(String uvName) {
+        return uvDetails.get(uvName, Long.MAX_VALUE);
+    }
+
+    public void setUvDetail(String uvName, UvDetailContainer detail) {
+        uvDetails.put(uvName, detail);
+    }
+}
@@ -5,28 +5,44 @@ import android.os.Parcelable;
 
 import com.google.gson.annotations.SerializedName;
 
-public class Comment implements Parcelable {
+import fr.utc.assos.uvweb.util.StableIds;
+
+/**
+ * Immutable, so it can be shared across threads. The semester and UV name are pooled,
+ * as they are repeated across thousands of comments.
+ */
+public final class Comment implements Parcelable {
+    /**
+     * Value of the {@code passed} field for a student who passed the UV.
+     */
+    public static final String PASSED = "obtenue";
+
     @SerializedName("identity")
-    private String author;
-    private int globalRate;
-    private String date;
-    private String semester;
-    private String passed;
-    private String comment;
+    private final String author;
+    private final int globalRate;
+    private final String date;
+    private final String semester;
+    private final boolean passed;
+    private final String comment;
     @SerializedName("name")
-    private String uvName;
+    private final String uvName;
+    // Computed on first use, as most comments are never displayed; volatile so that it is never read half-written
+    private transient volatile long stableId;
+
+    public Comment(String author, int globalRate, String date, String semester, boolean passed, String comment, String uvName) {
+        this.author = author;
+        this.globalRate = globalRate;
+        this.date = date;
+        this.semester = StringPool.get(semester);
+        this.passed = passed;
+        this.comment = comment;
+        this.uvName = StringPool.get(uvName);
+    }
 
     public Comment(Parcel in) {
-        author = in.readString();
-        globalRate = in.readInt();
-        date = in.readString();
-        semester = in.readString();
-        passed = in.readString();
-        comment = in.readString();
-        uvName = in.readString();
+        this(in.readString(), in.readInt(), in.readString(), in.readString(), in.readByte() != 0, in.readString(), in.readString());
     }
 
-
     public String getAuthor() {
         return author;
     }
@@ -43,7 +59,7 @@ public class Comment implements Parcelable {
         return semester;
     }
 
-    public String getPassed() {
+    public boolean isPassed() {
         return passed;
     }
 
@@ -55,6 +71,23 @@ public class Comment implements Parcelable {
         return uvName;
     }
 
+    /**
+     * @return an ID derived from the contents of the comment, the same whenever it is loaded
+     */
+    public long getStableId() {
+        long id = stableId;
+        if (id == 0) {
+            id = StableIds.start();
+            id = StableIds.add(id, uvName);
+            id = StableIds.add(id, author);
+            id = StableIds.add(id, date);
+            id = StableIds.add(id, semester);
+            id = StableIds.add(id, comment);
+            stableId = id;
+        }
+        return id;
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -66,7 +99,7 @@ public class Comment implements Parcelable {
         dest.writeInt(globalRate);
         dest.writeString(date);
         dest.writeString(semester);
-        dest.writeString(passed);
+        dest.writeByte((byte) (passed ? 1 : 0));
         dest.writeString(comment);
         dest.writeString(uvName);
     }
@@ -7,8 +7,26 @@ import java.util.List;
 public class Newsfeed {
     @SerializedName("comments")
     private List<Comment> comments;
+    @SerializedName("next_cursor")
+    private String nextCursor;
+
+    public Newsfeed(List<Comment> comments) {
+        this(comments, null);
+    }
+
+    public Newsfeed(List<Comment> comments, String nextCursor) {
+        this.comments = comments;
+        this.nextCursor = nextCursor;
+    }
 
     public List<Comment> getComments() {
         return comments;
     }
+
+    /**
+     * @return the cursor of the following page, or null if this page is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
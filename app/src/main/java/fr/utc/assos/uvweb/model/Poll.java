@@ -8,6 +8,12 @@ public class Poll implements Parcelable {
     private int year;
     private String season;
 
+    public Poll(float successRate, int year, String season) {
+        this.successRate = successRate;
+        this.year = year;
+        this.season = season;
+    }
+
     public Poll(Parcel in) {
         successRate = in.readFloat();
         year = in.readInt();
@@ -0,0 +1,38 @@
+package fr.utc.assos.uvweb.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical instances of the strings repeated across thousands of model objects, such as semesters
+ * and UV names, so that each distinct value is only held once whatever the number of comments parsed.
+ * Values are only weakly held: once no model refers to one anymore, it leaves the pool.
+ * Thread-safe, as models are parsed on the HTTP threads.
+ */
+public final class StringPool {
+    private static final Map<String, WeakReference<String>> POOL = new WeakHashMap<>();
+
+    private StringPool() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * @return the canonical instance equal to {@code value}, or null if {@code value} is null
+     */
+    public static String get(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (POOL) {
+            WeakReference<String> reference = POOL.get(value);
+            String canonical = reference != null ? reference.get() : null;
+            if (canonical == null) {
+                // The key is the value itself, so the entry lives exactly as long as the canonical instance
+                POOL.put(value, new WeakReference<>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package fr.utc.assos.uvweb.model;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes made to the UV catalogue since a given version.
+ */
+public class UvCatalogueDelta {
+    @SerializedName("version")
+    private long version;
+    @SerializedName("updated")
+    private List<UvListItem> updated;
+    @SerializedName("deleted")
+    private List<String> deleted;
+
+    public UvCatalogueDelta(long version, List<UvListItem> updated, List<String> deleted) {
+        this.version = version;
+        this.updated = updated;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return the version to ask the next delta from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the inserted and updated UVs
+     */
+    public List<UvListItem> getUpdated() {
+        return updated == null ? Collections.<UvListItem>emptyList() : updated;
+    }
+
+    /**
+     * @return the names of the deleted UVs
+     */
+    public List<String> getDeleted() {
+        return deleted == null ? Collections.<String>emptyList() : deleted;
+    }
+
+    public boolean isEmpty() {
+        return getUpdated().isEmpty() && getDeleted().isEmpty();
+    }
+
+    /**
+     * Applies the changes to a catalogue sorted by name. Updated UVs keep their position,
+     * inserted ones are placed according to their name.
+     *
+     * @return a new list, {@code uvs} is left untouched
+     */
+    public List<UvListItem> applyTo(List<UvListItem> uvs) {
+        Set<String> deletedNames = new HashSet<>(getDeleted());
+        Map<String, UvListItem> pending = new HashMap<>();
+        for (UvListItem uv : getUpdated()) {
+            pending.put(uv.getName(), uv);
+        }
+
+        List<UvListItem> merged = new ArrayList<>(uvs.size() + pending.size());
+        for (UvListItem uv : uvs) {
+            if (deletedNames.contains(uv.getName())) {
+                continue;
+            }
+            UvListItem update = pending.remove(uv.getName());
+            merged.add(update != null ? update : uv);
+        }
+
+        for (UvListItem updatedUv : getUpdated()) {
+            UvListItem uv = pending.remove(updatedUv.getName());
+            if (uv == null) {
+                continue;
+            }
+            int position = Collections.binarySearch(merged, uv, UvListItem.NAME_ORDER);
+            merged.add(position < 0 ? -position - 1 : position, uv);
+        }
+        return merged;
+    }
+}
@@ -6,6 +6,10 @@ public class UvDetail {
     @SerializedName("details")
     private UvDetailContainer detail;
 
+    public UvDetail(UvDetailContainer detail) {
+        this.detail = detail;
+    }
+
     public UvDetailContainer getDetail() {
         return detail;
     }
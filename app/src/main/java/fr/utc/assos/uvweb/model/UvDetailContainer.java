@@ -8,6 +8,13 @@ public class UvDetailContainer {
     private List<Poll> polls;
     private float averageRate;
 
+    public UvDetailContainer(UvDetailInfo uv, List<Comment> comments, List<Poll> polls, float averageRate) {
+        this.uv = uv;
+        this.comments = comments;
+        this.polls = polls;
+        this.averageRate = averageRate;
+    }
+
     public UvDetailInfo getUv() {
         return uv;
     }
@@ -4,6 +4,11 @@ public class UvDetailInfo {
     private String name;
     private String title;
 
+    public UvDetailInfo(String name, String title) {
+        this.name = name;
+        this.title = title;
+    }
+
     public String getName() {
         return name;
     }
@@ -3,17 +3,46 @@ package fr.utc.assos.uvweb.model;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-public class UvListItem implements Parcelable {
-    private String name;
-    private String title;
-    private String globalRate;
-    private int commentCount;
+import java.util.Comparator;
+
+import fr.utc.assos.uvweb.util.StableIds;
+
+/**
+ * Immutable, so it can be shared across threads. The name is pooled since comments refer to it too.
+ */
+public final class UvListItem implements Parcelable {
+    /**
+     * Value of {@link #getGlobalRate()} when the UV has not been rated.
+     */
+    public static final float NO_RATE = Float.NaN;
+
+    /**
+     * Order of the catalogue as served by the API.
+     */
+    public static final Comparator<UvListItem> NAME_ORDER = new Comparator<UvListItem>() {
+        @Override
+        public int compare(UvListItem lhs, UvListItem rhs) {
+            if (lhs.name == null || rhs.name == null) {
+                return lhs.name == null ? (rhs.name == null ? 0 : -1) : 1;
+            }
+            return lhs.name.compareTo(rhs.name);
+        }
+    };
+
+    private final String name;
+    private final String title;
+    private final float globalRate;
+    private final int commentCount;
+
+    public UvListItem(String name, String title, float globalRate, int commentCount) {
+        this.name = StringPool.get(name);
+        this.title = title;
+        this.globalRate = globalRate;
+        this.commentCount = commentCount;
+    }
 
     public UvListItem(Parcel in) {
-        name = in.readString();
-        title = in.readString();
-        globalRate = in.readString();
-        commentCount = in.readInt();
+        this(in.readString(), in.readString(), in.readFloat(), in.readInt());
     }
 
     public String getName() {
@@ -24,14 +53,28 @@ public class UvListItem implements Parcelable {
         return title;
     }
 
-    public String getGlobalRate() {
+    /**
+     * @return the rate out of 10, or {@link #NO_RATE}
+     */
+    public float getGlobalRate() {
         return globalRate;
     }
 
+    public boolean hasGlobalRate() {
+        return !Float.isNaN(globalRate);
+    }
+
     public int getCommentCount() {
         return commentCount;
     }
 
+    /**
+     * @return an ID derived from the name, which identifies a UV across catalogue versions
+     */
+    public long getStableId() {
+        return StableIds.add(StableIds.start(), name);
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -41,7 +84,7 @@ public class UvListItem implements Parcelable {
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeString(name);
         dest.writeString(title);
-        dest.writeString(globalRate);
+        dest.writeFloat(globalRate);
         dest.writeInt(commentCount);
     }
 
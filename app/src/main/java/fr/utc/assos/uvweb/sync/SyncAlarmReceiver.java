@@ -0,0 +1,22 @@
+package fr.utc.assos.uvweb.sync;
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.v4.content.WakefulBroadcastReceiver;
+
+/**
+ * Starts the sync when the alarm scheduled by {@link SyncScheduler} goes off, before Lollipop.
+ * Also receives the boot broadcast, since alarms do not survive a reboot, to schedule them again.
+ */
+public class SyncAlarmReceiver extends WakefulBroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            SyncScheduler.schedule(context);
+            return;
+        }
+        if (SyncScheduler.isSyncDue(context) && SyncScheduler.canSyncNow(context)) {
+            startWakefulService(context, new Intent(context, SyncService.class));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package fr.utc.assos.uvweb.sync;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+import android.util.Log;
+import android.util.SparseArray;
+
+import fr.utc.assos.uvweb.api.CancellationToken;
+import fr.utc.assos.uvweb.api.SyncReport;
+import fr.utc.assos.uvweb.api.UvwebProvider;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Runs the sync scheduled by {@link SyncScheduler} on Lollipop and above.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class SyncJobService extends JobService {
+    private static final String TAG = SyncJobService.class.getSimpleName();
+
+    /**
+     * Syncs in progress, by job id. Only accessed from the main thread, where jobs are started and stopped.
+     */
+    private final SparseArray<CancellationToken> syncs = new SparseArray<>();
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        if (!SyncScheduler.isSyncDue(this)) {
+            return false;
+        }
+        syncs.put(params.getJobId(), UvwebProvider.sync().addCallback(new Callback<SyncReport>() {
+            @Override
+            public void success(SyncReport report, Response response) {
+                syncs.remove(params.getJobId());
+                SyncScheduler.recordReport(SyncJobService.this, report);
+                jobFinished(params, false);
+            }
+
+            @Override
+            public void failure(RetrofitError error) {
+                Log.w(TAG, "Sync failed", error);
+                syncs.remove(params.getJobId());
+                jobFinished(params, true);
+            }
+        }));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        CancellationToken sync = syncs.get(params.getJobId());
+        if (sync == null) {
+            return false;
+        }
+        syncs.remove(params.getJobId());
+        sync.cancel();
+        return true;
+    }
+}
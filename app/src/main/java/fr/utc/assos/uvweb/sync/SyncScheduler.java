@@ -0,0 +1,164 @@
+package fr.utc.assos.uvweb.sync;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.api.SyncReport;
+
+/**
+ * Schedules the background sync of {@link fr.utc.assos.uvweb.api.UvwebProvider#sync()} on an unmetered network,
+ * while the device is charging or idle, so that it costs the user neither data nor battery.
+ * <p>
+ * Uses {@link JobScheduler} where available. Since a job cannot require charging or idle, one job is scheduled
+ * for each, the second one to run within an interval being skipped. Older devices get an inexact alarm
+ * checking the same conditions when it goes off.
+ */
+public final class SyncScheduler {
+    private static final long SYNC_INTERVAL = TimeUnit.HOURS.toMillis(6);
+    /**
+     * Leaves room for the inexactness of the periodic jobs and alarms.
+     */
+    private static final long MIN_TIME_BETWEEN_SYNCS = SYNC_INTERVAL / 2;
+    private static final int JOB_ID_WHILE_CHARGING = 1;
+    private static final int JOB_ID_WHILE_IDLE = 2;
+    private static final String PREF_LAST_SYNC = "pref_sync_last";
+    private static final String PREF_LAST_SYNC_DURATION = "pref_sync_last_duration";
+    private static final String PREF_LAST_SYNC_BYTES = "pref_sync_last_bytes";
+    private static final String PREF_LAST_SYNC_UV_DETAILS = "pref_sync_last_uv_details";
+    private static final String PREF_SYNC_COUNT = "pref_sync_count";
+    private static final String PREF_SYNC_TOTAL_DURATION = "pref_sync_total_duration";
+    private static final String PREF_SYNC_TOTAL_BYTES = "pref_sync_total_bytes";
+
+    private SyncScheduler() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * Schedules the sync unless it already is. Cheap enough to be called on every start of the process.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleJobs(context);
+        } else {
+            scheduleAlarm(context);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJobs(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        Set<Integer> pendingJobIds = new HashSet<>();
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            pendingJobIds.add(job.getId());
+        }
+        ComponentName service = new ComponentName(context, SyncJobService.class);
+        if (!pendingJobIds.contains(JOB_ID_WHILE_CHARGING)) {
+            jobScheduler.schedule(newJob(JOB_ID_WHILE_CHARGING, service).setRequiresCharging(true).build());
+        }
+        if (!pendingJobIds.contains(JOB_ID_WHILE_IDLE)) {
+            jobScheduler.schedule(newJob(JOB_ID_WHILE_IDLE, service).setRequiresDeviceIdle(true).build());
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static JobInfo.Builder newJob(int jobId, ComponentName service) {
+        return new JobInfo.Builder(jobId, service)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setPeriodic(SYNC_INTERVAL)
+                .setPersisted(true);
+    }
+
+    private static void scheduleAlarm(Context context) {
+        Intent intent = new Intent(context, SyncAlarmReceiver.class);
+        if (PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_NO_CREATE) != null) {
+            return;
+        }
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        // Not a wakeup alarm: a sleeping device is not charging, or will sync once it wakes up
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + SYNC_INTERVAL,
+                SYNC_INTERVAL, PendingIntent.getBroadcast(context, 0, intent, 0));
+    }
+
+    /**
+     * @return whether the last sync is old enough for another one to be worth it
+     */
+    static boolean isSyncDue(Context context) {
+        long lastSync = getPreferences(context).getLong(PREF_LAST_SYNC, 0);
+        return System.currentTimeMillis() - lastSync >= MIN_TIME_BETWEEN_SYNCS;
+    }
+
+    /**
+     * Checks the constraints the alarm cannot express: an unmetered network, and the device charging or idle.
+     * The screen being off stands for idle.
+     */
+    @SuppressWarnings("deprecation")
+    static boolean canSyncNow(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo network = connectivityManager.getActiveNetworkInfo();
+        if (network == null || !network.isConnected() || ConnectivityManagerCompat.isActiveNetworkMetered(connectivityManager)) {
+            return false;
+        }
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0) {
+            return true;
+        }
+        return !((PowerManager) context.getSystemService(Context.POWER_SERVICE)).isScreenOn();
+    }
+
+    static void recordReport(Context context, SyncReport report) {
+        SharedPreferences preferences = getPreferences(context);
+        preferences.edit()
+                .putLong(PREF_LAST_SYNC, System.currentTimeMillis())
+                .putLong(PREF_LAST_SYNC_DURATION, report.getDurationMillis())
+                .putLong(PREF_LAST_SYNC_BYTES, report.getBytesTransferred())
+                .putInt(PREF_LAST_SYNC_UV_DETAILS, report.getUvDetailCount())
+                .putInt(PREF_SYNC_COUNT, preferences.getInt(PREF_SYNC_COUNT, 0) + 1)
+                .putLong(PREF_SYNC_TOTAL_DURATION, preferences.getLong(PREF_SYNC_TOTAL_DURATION, 0) + report.getDurationMillis())
+                .putLong(PREF_SYNC_TOTAL_BYTES, preferences.getLong(PREF_SYNC_TOTAL_BYTES, 0) + report.getBytesTransferred())
+                .apply();
+    }
+
+    /**
+     * Prints the cost of the last sync and the totals since install, for {@code dumpsys}.
+     */
+    public static void dump(Context context, String prefix, PrintWriter writer) {
+        SharedPreferences preferences = getPreferences(context);
+        long lastSync = preferences.getLong(PREF_LAST_SYNC, 0);
+        if (lastSync == 0) {
+            writer.println(prefix + "Sync: never ran");
+            return;
+        }
+        writer.println(prefix + "Sync: last " + TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - lastSync) + " min ago"
+                + ", " + preferences.getLong(PREF_LAST_SYNC_DURATION, 0) + " ms"
+                + ", " + preferences.getLong(PREF_LAST_SYNC_BYTES, 0) + " bytes"
+                + ", " + preferences.getInt(PREF_LAST_SYNC_UV_DETAILS, 0) + " UV details"
+                + "; " + preferences.getInt(PREF_SYNC_COUNT, 0) + " syncs"
+                + ", " + preferences.getLong(PREF_SYNC_TOTAL_DURATION, 0) + " ms"
+                + ", " + preferences.getLong(PREF_SYNC_TOTAL_BYTES, 0) + " bytes in total");
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext());
+    }
+}
@@ -0,0 +1,59 @@
+package fr.utc.assos.uvweb.sync;
+
+import android.app.IntentService;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.api.SyncReport;
+import fr.utc.assos.uvweb.api.UvwebProvider;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Runs the sync started by {@link SyncAlarmReceiver}, holding its wake lock until the sync completes.
+ */
+public class SyncService extends IntentService {
+    private static final String TAG = SyncService.class.getSimpleName();
+    private static final long SYNC_TIMEOUT_MINUTES = 10;
+
+    public SyncService() {
+        super(TAG);
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        final CountDownLatch done = new CountDownLatch(1);
+        // The provider must be used from the main thread
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                UvwebProvider.sync().addCallback(new Callback<SyncReport>() {
+                    @Override
+                    public void success(SyncReport report, Response response) {
+                        SyncScheduler.recordReport(SyncService.this, report);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void failure(RetrofitError error) {
+                        Log.w(TAG, "Sync failed", error);
+                        done.countDown();
+                    }
+                });
+            }
+        });
+        try {
+            done.await(SYNC_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (InterruptedException ignored) {
+            // no-op
+        } finally {
+            SyncAlarmReceiver.completeWakefulIntent(intent);
+        }
+    }
+}
@@ -13,11 +13,18 @@ import android.support.v4.view.ViewPager;
 import android.view.Menu;
 import android.view.MenuItem;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.Locale;
 
+import fr.utc.assos.uvweb.BuildConfig;
 import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.StartupTimings;
+import fr.utc.assos.uvweb.api.UvwebProvider;
+import fr.utc.assos.uvweb.sync.SyncScheduler;
 import fr.utc.assos.uvweb.ui.fragment.NewsfeedFragment;
 import fr.utc.assos.uvweb.ui.fragment.UvListFragment;
+import fr.utc.assos.uvweb.ui.view.MetricsOverlayView;
 
 public class MainActivity extends ToolbarActivity {
     private static final int FRAGMENT_COUNT = 2;
@@ -60,6 +67,22 @@ public class MainActivity extends ToolbarActivity {
         });
 
         loadLastTabIndex();
+
+        if (BuildConfig.DEBUG) {
+            MetricsOverlayView.attach(this);
+        }
+    }
+
+    /**
+     * Exports the request metrics and startup timings through {@code adb shell dumpsys activity fr.utc.assos.uvweb}.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.println(prefix + UvwebProvider.getHttpCacheStats());
+        UvwebProvider.getRequestMetrics().dump(writer);
+        SyncScheduler.dump(this, prefix, writer);
+        StartupTimings.dump(this, prefix, writer);
     }
 
     private void loadLastTabIndex() {
@@ -4,11 +4,11 @@ import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 
 import fr.utc.assos.uvweb.R;
-import fr.utc.assos.uvweb.model.UvListItem;
 import fr.utc.assos.uvweb.ui.fragment.UvFragment;
 
 public class UvActivity extends AppCompatActivity {
-    public static final String ARG_UV = "arg_uv";
+    public static final String ARG_UV_NAME = "arg_uv_name";
+    public static final String ARG_UV_TITLE = "arg_uv_title";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -16,11 +16,12 @@ public class UvActivity extends AppCompatActivity {
 
         setContentView(R.layout.activity_uv);
 
-        UvListItem uv = getIntent().getParcelableExtra(ARG_UV);
+        String uvName = getIntent().getStringExtra(ARG_UV_NAME);
+        String uvTitle = getIntent().getStringExtra(ARG_UV_TITLE);
 
         getSupportFragmentManager()
                 .beginTransaction()
-                .replace(R.id.fragment_uv_container, UvFragment.newInstance(uv))
+                .replace(R.id.fragment_uv_container, UvFragment.newInstance(uvName, uvTitle))
                 .commit();
     }
 }
@@ -5,117 +5,95 @@ import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Button;
 import android.widget.TextView;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 import fr.utc.assos.uvweb.R;
 import fr.utc.assos.uvweb.model.Comment;
 import fr.utc.assos.uvweb.model.Poll;
+import fr.utc.assos.uvweb.ui.view.CommentCardRenderer;
+import fr.utc.assos.uvweb.ui.view.PollHistoryView;
+import fr.utc.assos.uvweb.util.CommentSorter;
+import fr.utc.assos.uvweb.util.PollSeries;
 
-public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.ViewHolder> {
-    private static final String COMMENT_DATE_FORMAT = "dd/MM/yy";
-
-    private static final int VIEWTYPE_HEADER = 0;
-    private static final int VIEWTYPE_COMMENT = 1;
-
-    private static final String TAG_PASSED = "obtenue";
+public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    private static final int VIEWTYPE_HEADER = R.layout.item_detail_header;
+    private static final int VIEWTYPE_COMMENT = CommentCardPool.VIEW_TYPE;
+    private static final long HEADER_ID = 0;
 
     private List<Comment> comments = new ArrayList<>();
-    private List<Poll> polls = new ArrayList<>();
-    private float averageRate;
+    // Formatted once per UV rather than on every bind of the header
+    private PollSeries pollSeries = PollSeries.EMPTY;
+    private CharSequence averageRateText;
 
+    private final Context appContext;
+    private final CommentCardRenderer renderer;
     private ItemClickListener itemClickListener;
 
-    public CommentAdapter(ItemClickListener itemClickListener) {
+    public CommentAdapter(Context context, ItemClickListener itemClickListener) {
         this.itemClickListener = itemClickListener;
+        appContext = context.getApplicationContext();
+        setHasStableIds(true);
+        renderer = new CommentCardRenderer(appContext, new CommentCardRenderer.TextProvider() {
+            @Override
+            public CharSequence getHeadline(Comment comment) {
+                return appContext.getString(R.string.global_rate, comment.getGlobalRate());
+            }
+
+            @Override
+            public CharSequence getSubtitle(Comment comment) {
+                int format = comment.isPassed() ? R.string.author_passed : R.string.author_failed;
+                return appContext.getString(format, comment.getAuthor(), comment.getSemester());
+            }
+        });
     }
 
     @Override
-    public CommentAdapter.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        View rootView;
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         switch (viewType) {
             case VIEWTYPE_HEADER:
-                rootView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_detail_header, parent, false);
+                // Recycled into the shared pool too, so it must not hold the activity either
+                View rootView = LayoutInflater.from(CommentCardPool.getThemedContext(parent.getContext()))
+                        .inflate(R.layout.item_detail_header, parent, false);
                 return new HeaderViewHolder(rootView);
             case VIEWTYPE_COMMENT:
             default:
-                rootView = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_detail_comment, parent, false);
-                return new CommentViewHolder(rootView);
+                return CommentCardPool.newViewHolder(parent);
         }
     }
 
     @Override
-    public void onBindViewHolder(CommentAdapter.ViewHolder holder, final int position) {
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, final int position) {
         switch (getItemViewType(position)) {
             case VIEWTYPE_HEADER:
                 bindHeaderViewHolder((HeaderViewHolder) holder);
                 break;
             case VIEWTYPE_COMMENT:
             default:
-                bindCommentViewHolder((CommentViewHolder) holder, position - 1);
+                bindCommentViewHolder((CommentCardViewHolder) holder, position - 1);
                 break;
         }
     }
 
-    private void bindCommentViewHolder(CommentViewHolder holder, final int commentPosition) {
-        Context context = holder.itemView.getContext();
-        Comment comment = comments.get(commentPosition);
-
-        if (comment.getPassed().equals(TAG_PASSED)) {
-            holder.authorView.setText(context.getString(R.string.author_passed, comment.getAuthor(), comment.getSemester()));
-        } else {
-            holder.authorView.setText(context.getString(R.string.author_failed, comment.getAuthor(), comment.getSemester()));
-        }
-
-        holder.commentView.setText(comment.getComment());
-        holder.rateView.setText(context.getString(R.string.global_rate, comment.getGlobalRate()));
-        holder.dateView.setText(comment.getDate());
-        holder.detailButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                itemClickListener.onClick(comments.get(commentPosition));
-            }
-        });
+    private void bindCommentViewHolder(CommentCardViewHolder holder, int commentPosition) {
+        holder.bind(renderer, comments.get(commentPosition), itemClickListener);
     }
 
-    private void bindHeaderViewHolder(HeaderViewHolder holder) {
-        Context context = holder.itemView.getContext();
-        holder.rateView.setText(context.getString(R.string.average_rate, averageRate));
-
-        if (polls.size() == 0) {
-            holder.successRateTitleView.setVisibility(View.GONE);
-        }
-
-        for (int i = 0; i < polls.size(); i++) {
-            if (i >= holder.pollListView.getChildCount()) {
-                break;
-            }
-            Poll poll = polls.get(i);
-            TextView pollView = (TextView) holder.pollListView.getChildAt(i);
-            pollView.setText(context.getString(R.string.poll_success_rate, getSeasonForPoll(poll), getYearForPoll(poll), poll.getSuccessRate()));
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        if (holder instanceof CommentCardViewHolder) {
+            ((CommentCardViewHolder) holder).unbind();
         }
     }
 
-    private String getSeasonForPoll(Poll poll) {
-        return String.valueOf(poll.getSeason().toUpperCase().charAt(0));
-    }
-
-    private int getYearForPoll(Poll poll) {
-        if (poll.getYear() >= 2000) {
-            return poll.getYear() - 2000;
-        } else {
-            return poll.getYear() - 1900;
-        }
+    private void bindHeaderViewHolder(HeaderViewHolder holder) {
+        holder.rateView.setText(averageRateText);
+        int pollVisibility = pollSeries.isEmpty() ? View.GONE : View.VISIBLE;
+        holder.successRateTitleView.setVisibility(pollVisibility);
+        holder.pollHistoryView.setVisibility(pollVisibility);
+        holder.pollHistoryView.setSeries(pollSeries);
     }
 
     @Override
@@ -131,71 +109,34 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.ViewHold
         return position == 0 ? VIEWTYPE_HEADER : VIEWTYPE_COMMENT;
     }
 
+    @Override
+    public long getItemId(int position) {
+        return position == 0 ? HEADER_ID : comments.get(position - 1).getStableId();
+    }
+
     public void setComments(List<Comment> comments, float averageRate, List<Poll> polls) {
         this.comments.clear();
         this.comments.addAll(comments);
-        sortComments();
-        this.averageRate = averageRate;
-        this.polls.clear();
-        this.polls.addAll(polls);
+        CommentSorter.sortByDate(this.comments);
+        renderer.precompute(this.comments);
+        averageRateText = appContext.getString(R.string.average_rate, averageRate);
+        pollSeries = PollSeries.from(polls);
         notifyDataSetChanged();
     }
 
-    private void sortComments() {
-        final DateFormat format = new SimpleDateFormat(COMMENT_DATE_FORMAT, Locale.FRENCH);
-        Comparator<Comment> comparator = new Comparator<Comment>() {
-            @Override
-            public int compare(Comment lhs, Comment rhs) {
-                try {
-                    Date lDate = format.parse(lhs.getDate());
-                    Date rDate = format.parse(rhs.getDate());
-                    return rDate.compareTo(lDate);
-                } catch (ParseException exception) {
-                    return 1;
-                }
-            }
-        };
-
-        Collections.sort(this.comments, comparator);
-    }
-
-    public abstract class ViewHolder extends RecyclerView.ViewHolder {
-        public ViewHolder(View itemView) {
-            super(itemView);
-        }
-    }
-
-    private class CommentViewHolder extends ViewHolder {
-        private final TextView authorView;
-        private final TextView commentView;
-        private final TextView rateView;
-        private final TextView dateView;
-        private final Button detailButton;
-
-        public CommentViewHolder(View itemView) {
-            super(itemView);
-            authorView = (TextView) itemView.findViewById(R.id.author);
-            commentView = (TextView) itemView.findViewById(R.id.comment);
-            rateView = (TextView) itemView.findViewById(R.id.globalrate);
-            dateView = (TextView) itemView.findViewById(R.id.date);
-            detailButton = (Button) itemView.findViewById(R.id.view);
-        }
-    }
-
-    private class HeaderViewHolder extends ViewHolder {
+    private static class HeaderViewHolder extends RecyclerView.ViewHolder {
         private final TextView rateView;
-        private final ViewGroup pollListView;
+        private final PollHistoryView pollHistoryView;
         private final TextView successRateTitleView;
 
         public HeaderViewHolder(View itemView) {
             super(itemView);
             rateView = (TextView) itemView.findViewById(R.id.average_rate);
-            pollListView = (ViewGroup) itemView.findViewById(R.id.poll_list);
+            pollHistoryView = (PollHistoryView) itemView.findViewById(R.id.poll_history);
             successRateTitleView = (TextView) itemView.findViewById(R.id.success_rate_label);
         }
     }
 
-    public interface ItemClickListener {
-        void onClick(Comment comment);
+    public interface ItemClickListener extends CommentCardViewHolder.ClickListener {
     }
 }
@@ -0,0 +1,103 @@
+package fr.utc.assos.uvweb.ui.adapter;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import fr.utc.assos.uvweb.R;
+
+/**
+ * View pool shared by the lists of comment cards, so that opening a UV reuses the cards inflated for the newsfeed,
+ * and filled with a few cards while the main thread is idle after startup.
+ * <p>
+ * The pooled views outlive the screens they were displayed in, so they are inflated with the application
+ * context rather than an activity. Must only be used from the main thread.
+ */
+public final class CommentCardPool {
+    /**
+     * View type of the comment cards in every adapter using the pool.
+     */
+    static final int VIEW_TYPE = R.layout.item_comment_card;
+
+    /**
+     * Enough to fill a screen.
+     */
+    private static final int MAX_CARDS = 8;
+    private static final int PREINFLATED_CARDS = 4;
+
+    private static RecyclerView.RecycledViewPool pool;
+    private static Context themedContext;
+    private static boolean preinflated;
+
+    private CommentCardPool() {
+        // Class should not be instantiated
+    }
+
+    public static RecyclerView.RecycledViewPool get() {
+        if (pool == null) {
+            pool = new RecyclerView.RecycledViewPool();
+            pool.setMaxRecycledViews(VIEW_TYPE, MAX_CARDS);
+        }
+        return pool;
+    }
+
+    /**
+     * @return the context to inflate the views put in the pool with, themed like the activities
+     */
+    static Context getThemedContext(Context context) {
+        if (themedContext == null) {
+            themedContext = new ContextThemeWrapper(context.getApplicationContext(), R.style.AppTheme);
+        }
+        return themedContext;
+    }
+
+    static CommentCardViewHolder newViewHolder(ViewGroup parent) {
+        return new CommentCardViewHolder(LayoutInflater.from(getThemedContext(parent.getContext()))
+                .inflate(R.layout.item_comment_card, parent, false));
+    }
+
+    /**
+     * Inflates a few cards into the pool, one per idle pass of the main thread so that no frame is delayed.
+     * Only the first call has an effect.
+     */
+    public static void preinflate(Context context) {
+        if (preinflated) {
+            return;
+        }
+        preinflated = true;
+        final FrameLayout parent = new FrameLayout(getThemedContext(context));
+        // Holders must be created through an adapter for the pool to know their view type
+        final RecyclerView.Adapter<CommentCardViewHolder> inflater = new PreinflatingAdapter();
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            private int inflated;
+
+            @Override
+            public boolean queueIdle() {
+                get().putRecycledView(inflater.createViewHolder(parent, VIEW_TYPE));
+                return ++inflated < PREINFLATED_CARDS;
+            }
+        });
+    }
+
+    private static class PreinflatingAdapter extends RecyclerView.Adapter<CommentCardViewHolder> {
+        @Override
+        public CommentCardViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return newViewHolder(parent);
+        }
+
+        @Override
+        public void onBindViewHolder(CommentCardViewHolder holder, int position) {
+            // no-op
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}
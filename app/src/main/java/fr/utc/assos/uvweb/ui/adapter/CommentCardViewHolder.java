@@ -0,0 +1,47 @@
+package fr.utc.assos.uvweb.ui.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.ui.view.CommentCardRenderer;
+import fr.utc.assos.uvweb.ui.view.CommentCardView;
+
+/**
+ * Holder of a comment card, shared by the newsfeed and the UV comments through {@link CommentCardPool}.
+ */
+public class CommentCardViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+    private final CommentCardView cardView;
+    private ClickListener clickListener;
+
+    public CommentCardViewHolder(View itemView) {
+        super(itemView);
+        cardView = (CommentCardView) itemView.findViewById(R.id.comment_card);
+        cardView.setOnClickListener(this);
+    }
+
+    void bind(CommentCardRenderer renderer, Comment comment, ClickListener clickListener) {
+        this.clickListener = clickListener;
+        cardView.bind(renderer, comment);
+    }
+
+    /**
+     * Called when the holder is recycled, since the shared pool outlives the screen it was bound in.
+     */
+    void unbind() {
+        clickListener = null;
+        cardView.unbind();
+    }
+
+    @Override
+    public void onClick(View v) {
+        if (clickListener != null) {
+            clickListener.onClick(cardView.getComment());
+        }
+    }
+
+    public interface ClickListener {
+        void onClick(Comment comment);
+    }
+}
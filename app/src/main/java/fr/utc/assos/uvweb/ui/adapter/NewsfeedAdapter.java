@@ -2,78 +2,83 @@ package fr.utc.assos.uvweb.ui.adapter;
 
 import android.content.Context;
 import android.support.v7.widget.RecyclerView;
-import android.view.LayoutInflater;
-import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Button;
-import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.data.NewsfeedWindow;
 import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.ui.view.CommentCardRenderer;
 
-public class NewsfeedAdapter extends RecyclerView.Adapter<NewsfeedAdapter.ViewHolder> {
+public class NewsfeedAdapter extends RecyclerView.Adapter<CommentCardViewHolder> {
 
-    private List<Comment> comments = new ArrayList<>();
+    private final CommentCardRenderer renderer;
+    private NewsfeedWindow comments;
     private ItemClickListener itemClickListener;
 
-    public NewsfeedAdapter(ItemClickListener itemClickListener) {
+    public NewsfeedAdapter(Context context, ItemClickListener itemClickListener) {
         this.itemClickListener = itemClickListener;
+        setHasStableIds(true);
+        final Context appContext = context.getApplicationContext();
+        renderer = new CommentCardRenderer(appContext, new CommentCardRenderer.TextProvider() {
+            @Override
+            public CharSequence getHeadline(Comment comment) {
+                return comment.getUvName();
+            }
+
+            @Override
+            public CharSequence getSubtitle(Comment comment) {
+                return appContext.getString(R.string.newsfeed_author, comment.getAuthor(), comment.getGlobalRate());
+            }
+        });
     }
 
     @Override
-    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        View root = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_newsfeed, parent, false);
-        return new ViewHolder(root);
+    public CommentCardViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return CommentCardPool.newViewHolder(parent);
     }
 
     @Override
-    public void onBindViewHolder(ViewHolder holder, int position) {
-        final Comment comment = comments.get(position);
-        Context context = holder.itemView.getContext();
-        holder.authorView.setText(context.getString(R.string.newsfeed_author, comment.getAuthor(), comment.getGlobalRate()));
-        holder.dateView.setText(comment.getDate());
-        holder.uvNameView.setText(comment.getUvName());
-        holder.commentView.setText(comment.getComment());
-        holder.detailButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                itemClickListener.onClick(comment);
-            }
-        });
+    public void onBindViewHolder(CommentCardViewHolder holder, int position) {
+        holder.bind(renderer, comments.get(position), itemClickListener);
+    }
+
+    @Override
+    public void onViewRecycled(CommentCardViewHolder holder) {
+        holder.unbind();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return CommentCardPool.VIEW_TYPE;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return comments.get(position).getStableId();
     }
 
     @Override
     public int getItemCount() {
-        return comments.size();
+        return comments == null ? 0 : comments.size();
     }
 
-    public void setComments(List<Comment> comments) {
+    /**
+     * The caller notifies the adapter of the changes it makes to the window afterwards.
+     */
+    public void setComments(NewsfeedWindow comments) {
         this.comments = comments;
         notifyDataSetChanged();
     }
 
-    public class ViewHolder extends RecyclerView.ViewHolder {
-
-        private final TextView authorView;
-        private final TextView uvNameView;
-        private final TextView commentView;
-        private final TextView dateView;
-        private final Button detailButton;
-
-        public ViewHolder(View itemView) {
-            super(itemView);
-            authorView = (TextView) itemView.findViewById(R.id.author);
-            uvNameView = (TextView) itemView.findViewById(R.id.uvname);
-            commentView = (TextView) itemView.findViewById(R.id.comment);
-            dateView = (TextView) itemView.findViewById(R.id.date);
-            detailButton = (Button) itemView.findViewById(R.id.view);
-        }
+    /**
+     * Lays out the cards of a page in the background, before it is added to the window.
+     */
+    public void precompute(List<Comment> page) {
+        renderer.precompute(page);
     }
 
-    public interface ItemClickListener {
-        void onClick(Comment comment);
+    public interface ItemClickListener extends CommentCardViewHolder.ClickListener {
     }
 }
@@ -1,27 +1,57 @@
 package fr.utc.assos.uvweb.ui.adapter;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.data.UvCataloguePrefix;
+import fr.utc.assos.uvweb.data.UvFullTextIndex;
 import fr.utc.assos.uvweb.model.UvListItem;
+import fr.utc.assos.uvweb.util.UvSearchIndex;
+import fr.utc.assos.uvweb.util.UvSortIndex;
 
 
 public class UvListAdapter extends RecyclerView.Adapter<UvListAdapter.ViewHolder> {
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    private static final int FULL_TEXT_RESULT_LIMIT = 50;
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
 
     private List<UvListItem> uvs = new ArrayList<>();
-    private List<UvListItem> filteredUvs = new ArrayList<>();
+    // Built on the first search, so that displaying a catalogue does not require reading all of it
+    private UvSearchIndex searchIndex;
+    // Built when a sort order other than the catalogue one is first needed
+    private UvSortIndex sortIndex;
+    private int order = UvSortIndex.ORDER_NAME;
+    private UvFullTextIndex fullTextIndex;
+    private List<UvListItem> filteredUvs = uvs;
+    private String search = "";
+
+    private int searchGeneration;
+    private Runnable pendingSearch;
+    private Future<?> runningSearch;
 
     private ItemClickListener itemClickListener;
 
     public UvListAdapter(ItemClickListener itemClickListener) {
         this.itemClickListener = itemClickListener;
+        setHasStableIds(true);
     }
 
     @Override
@@ -32,15 +62,9 @@ public class UvListAdapter extends RecyclerView.Adapter<UvListAdapter.ViewHolder
 
     @Override
     public void onBindViewHolder(ViewHolder viewHolder, int position) {
-        final UvListItem uv = filteredUvs.get(position);
+        UvListItem uv = filteredUvs.get(position);
         viewHolder.nameView.setText(uv.getName());
         viewHolder.titleView.setText(uv.getTitle());
-        viewHolder.itemView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                itemClickListener.onClick(uv);
-            }
-        });
     }
 
     @Override
@@ -48,30 +72,214 @@ public class UvListAdapter extends RecyclerView.Adapter<UvListAdapter.ViewHolder
         return filteredUvs.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return filteredUvs.get(position).getStableId();
+    }
+
+    public UvListItem getUv(int position) {
+        return filteredUvs.get(position);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        cancelSearch();
+    }
+
+    /**
+     * Completes the UV name matches with the UVs whose title or comments match the search.
+     */
+    public void setFullTextIndex(UvFullTextIndex fullTextIndex) {
+        this.fullTextIndex = fullTextIndex;
+    }
+
+    /**
+     * Replaces the catalogue. When UVs are already displayed, the changes are applied as a diff
+     * so that a revalidated catalogue does not reset the list, or appended when the catalogue
+     * is a {@link UvCataloguePrefix} still being downloaded that only grew.
+     * A catalogue being downloaded is only searched and sorted once complete.
+     * Without a search and in catalogue order, {@code uvs} is displayed as is. It must not be modified afterwards,
+     * and only the UVs bound are read from it.
+     */
     public void setUvs(List<UvListItem> uvs) {
+        cancelSearch();
         this.uvs = uvs;
-        filteredUvs.clear();
-        filteredUvs.addAll(uvs);
-        notifyDataSetChanged();
+        searchIndex = null;
+        sortIndex = null;
+        if (!TextUtils.isEmpty(search) || order != UvSortIndex.ORDER_NAME) {
+            runSearch(searchGeneration);
+        } else if (filteredUvs.isEmpty()) {
+            filteredUvs = uvs;
+            notifyDataSetChanged();
+        } else if (uvs instanceof UvCataloguePrefix && ((UvCataloguePrefix) uvs).extend(filteredUvs)) {
+            int start = filteredUvs.size();
+            filteredUvs = uvs;
+            notifyItemRangeInserted(start, uvs.size() - start);
+        } else {
+            runSearch(searchGeneration);
+        }
+    }
+
+    /**
+     * Displays the catalogue, or the search result, in another order. The change is applied as a diff,
+     * without sorting again once the sort index of the catalogue is built.
+     *
+     * @param order one of the {@link UvSortIndex} orders
+     */
+    public void setOrder(int order) {
+        if (order == this.order) {
+            return;
+        }
+        this.order = order;
+        cancelSearch();
+        runSearch(searchGeneration);
+    }
+
+    public int getOrder() {
+        return order;
     }
 
+    /**
+     * Runs the search off the main thread once the query has been stable for a short while,
+     * and applies the result as a diff. A newer query cancels the previous one.
+     */
     public void filter(String search) {
-        filteredUvs.clear();
-        for (UvListItem uv : uvs) {
-            if (uv.getName().toLowerCase().startsWith(search)) {
-                filteredUvs.add(uv);
+        this.search = search;
+        scheduleSearch(SEARCH_DEBOUNCE_MS);
+    }
+
+    public void clearFilter() {
+        if (TextUtils.isEmpty(search)) {
+            return;
+        }
+        search = "";
+        scheduleSearch(0);
+    }
+
+    private void scheduleSearch(long delay) {
+        cancelSearch();
+        final int generation = searchGeneration;
+        pendingSearch = new Runnable() {
+            @Override
+            public void run() {
+                pendingSearch = null;
+                runSearch(generation);
             }
+        };
+        handler.postDelayed(pendingSearch, delay);
+    }
+
+    private void runSearch(final int generation) {
+        if (uvs instanceof UvCataloguePrefix && !((UvCataloguePrefix) uvs).isComplete()) {
+            // Still appended to on the main thread, and searched again with each batch otherwise
+            return;
         }
-        notifyDataSetChanged();
+        final List<UvListItem> catalogue = uvs;
+        final UvSearchIndex builtIndex = searchIndex;
+        final UvSortIndex builtSortIndex = sortIndex;
+        final int sortOrder = order;
+        final String query = search;
+        final UvFullTextIndex textIndex = fullTextIndex;
+        final List<UvListItem> oldUvs = filteredUvs;
+        runningSearch = SEARCH_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                final UvSearchIndex index;
+                final List<UvListItem> newUvs;
+                if (TextUtils.isEmpty(query)) {
+                    index = builtIndex;
+                    newUvs = catalogue;
+                } else {
+                    index = builtIndex != null ? builtIndex : new UvSearchIndex(catalogue);
+                    newUvs = index.search(query);
+                    if (textIndex != null) {
+                        addFullTextMatches(newUvs, index, textIndex.search(query, FULL_TEXT_RESULT_LIMIT));
+                    }
+                }
+                final UvSortIndex sorter;
+                final List<UvListItem> sortedUvs;
+                if (sortOrder == UvSortIndex.ORDER_NAME) {
+                    // Search results are in catalogue order, followed by the full text matches
+                    sorter = builtSortIndex;
+                    sortedUvs = newUvs;
+                } else {
+                    sorter = builtSortIndex != null ? builtSortIndex : new UvSortIndex(catalogue);
+                    sortedUvs = TextUtils.isEmpty(query) ? sorter.sort(sortOrder) : sorter.sort(sortOrder, newUvs);
+                }
+                final DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new UvDiffCallback(oldUvs, sortedUvs), false);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != searchGeneration) {
+                            return;
+                        }
+                        runningSearch = null;
+                        searchIndex = index;
+                        sortIndex = sorter;
+                        filteredUvs = sortedUvs;
+                        diff.dispatchUpdatesTo(UvListAdapter.this);
+                    }
+                });
+            }
+        });
     }
 
-    public void clearFilter() {
-        filteredUvs.clear();
-        filteredUvs.addAll(uvs);
-        notifyDataSetChanged();
+    private static void addFullTextMatches(List<UvListItem> uvs, UvSearchIndex index, List<String> matchingNames) {
+        Set<UvListItem> nameMatches = new HashSet<>(uvs);
+        for (String name : matchingNames) {
+            UvListItem uv = index.find(name);
+            if (uv != null && !nameMatches.contains(uv)) {
+                uvs.add(uv);
+            }
+        }
     }
 
-    public class ViewHolder extends RecyclerView.ViewHolder {
+    private void cancelSearch() {
+        searchGeneration++;
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        if (runningSearch != null) {
+            runningSearch.cancel(true);
+            runningSearch = null;
+        }
+    }
+
+    private static class UvDiffCallback extends DiffUtil.Callback {
+        private final List<UvListItem> oldUvs;
+        private final List<UvListItem> newUvs;
+
+        UvDiffCallback(List<UvListItem> oldUvs, List<UvListItem> newUvs) {
+            this.oldUvs = oldUvs;
+            this.newUvs = newUvs;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldUvs.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newUvs.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return TextUtils.equals(oldUvs.get(oldItemPosition).getName(), newUvs.get(newItemPosition).getName());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            UvListItem oldUv = oldUvs.get(oldItemPosition);
+            UvListItem newUv = newUvs.get(newItemPosition);
+            return oldUv == newUv || TextUtils.equals(oldUv.getTitle(), newUv.getTitle());
+        }
+    }
+
+    public class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         private final TextView nameView;
         private final TextView titleView;
 
@@ -79,6 +287,16 @@ public class UvListAdapter extends RecyclerView.Adapter<UvListAdapter.ViewHolder
             super(itemView);
             nameView = (TextView) itemView.findViewById(R.id.name);
             titleView = (TextView) itemView.findViewById(R.id.title);
+            // Set once rather than on every bind, the UV being looked up when clicked
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                itemClickListener.onClick(filteredUvs.get(position));
+            }
         }
     }
 
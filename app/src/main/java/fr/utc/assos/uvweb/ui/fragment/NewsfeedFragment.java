@@ -2,7 +2,7 @@ package fr.utc.assos.uvweb.ui.fragment;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.design.widget.Snackbar;
 import android.support.v4.app.Fragment;
 import android.support.v7.widget.LinearLayoutManager;
@@ -13,31 +13,47 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ProgressBar;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.api.CancellationToken;
+import fr.utc.assos.uvweb.api.RequestMetrics;
+import fr.utc.assos.uvweb.api.RequestScheduler;
 import fr.utc.assos.uvweb.api.UvwebProvider;
+import fr.utc.assos.uvweb.data.NewsfeedWindow;
+import fr.utc.assos.uvweb.data.UvwebRepository;
 import fr.utc.assos.uvweb.model.Comment;
 import fr.utc.assos.uvweb.model.Newsfeed;
 import fr.utc.assos.uvweb.ui.activity.CommentActivity;
+import fr.utc.assos.uvweb.ui.adapter.CommentCardPool;
 import fr.utc.assos.uvweb.ui.adapter.NewsfeedAdapter;
 import retrofit.Callback;
 import retrofit.RetrofitError;
 import retrofit.client.Response;
 
-public class NewsfeedFragment extends Fragment implements Callback<Newsfeed>, NewsfeedAdapter.ItemClickListener {
+public class NewsfeedFragment extends Fragment implements NewsfeedAdapter.ItemClickListener {
     private static final String TAG = NewsfeedFragment.class.getSimpleName();
-    private static final String STATE_NEWSFEED_ITEMS = "state_newsfeed_items";
 
     private static final int LOADING_STATE_IN_PROGRESS = 0;
     private static final int LOADING_STATE_COMPLETE = 1;
 
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGES = 5;
+    /**
+     * Number of comments left before either end of the window at which the adjacent page is requested.
+     */
+    private static final int LOAD_THRESHOLD = 15;
+
     private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
 
     private NewsfeedAdapter adapter;
-    private List<Comment> comments;
+    private NewsfeedWindow comments;
     private ProgressBar progressBar;
+    private PageCallback pendingPage;
+    /**
+     * Callback of a first page served from the last sync, still waiting for the revalidated one.
+     */
+    private PageCallback provisionalPage;
+    private long loadStartedAt;
 
 
     @Override
@@ -47,9 +63,19 @@ public class NewsfeedFragment extends Fragment implements Callback<Newsfeed>, Ne
         recyclerView = (RecyclerView) root.findViewById(R.id.recycler);
         progressBar = (ProgressBar) root.findViewById(R.id.progressbar);
 
-        recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
-        adapter = new NewsfeedAdapter(this);
+        layoutManager = new LinearLayoutManager(getActivity());
+        // Hands the cards over to the UV screen through the shared pool
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(CommentCardPool.get());
+        adapter = new NewsfeedAdapter(getActivity(), this);
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                loadAdjacentPages();
+            }
+        });
 
         return root;
     }
@@ -68,44 +94,100 @@ public class NewsfeedFragment extends Fragment implements Callback<Newsfeed>, Ne
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
         if (savedInstanceState != null) {
-            comments = savedInstanceState.getParcelableArrayList(STATE_NEWSFEED_ITEMS);
-            if (comments != null) {
+            comments = UvwebRepository.getInstance().getNewsfeed();
+            if (comments != null && !comments.isEmpty()) {
                 updateViews();
                 return;
             }
         }
+        comments = new NewsfeedWindow(MAX_PAGES);
+        UvwebRepository.getInstance().setNewsfeed(comments);
         setLoadingState(LOADING_STATE_IN_PROGRESS);
-        UvwebProvider.getNewsfeed(this);
+        loadStartedAt = SystemClock.elapsedRealtime();
+        loadPage(comments.getNextCursor(), false);
     }
 
     @Override
-    public void onSaveInstanceState(Bundle outState) {
-        super.onSaveInstanceState(outState);
-        if (comments != null) {
-            outState.putParcelableArrayList(STATE_NEWSFEED_ITEMS, new ArrayList<Parcelable>(comments));
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (pendingPage != null) {
+            pendingPage.token.cancel();
+            pendingPage = null;
         }
-    }
-
-    @Override
-    public void success(Newsfeed newsfeed, Response response) {
-        comments = newsfeed.getComments();
-        if (getActivity() != null) {
-            updateViews();
+        if (provisionalPage != null) {
+            provisionalPage.token.cancel();
+            provisionalPage = null;
         }
     }
 
     private void updateViews() {
         adapter.setComments(comments);
         setLoadingState(LOADING_STATE_COMPLETE);
+        UvwebProvider.getRequestMetrics().recordDisplayed(RequestMetrics.ENDPOINT_NEWSFEED, loadStartedAt);
+        loadStartedAt = 0;
     }
 
-    @Override
-    public void failure(RetrofitError error) {
+    private void loadAdjacentPages() {
+        if (pendingPage != null || comments.isEmpty()) {
+            return;
+        }
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        if (comments.hasNext() && last >= comments.size() - LOAD_THRESHOLD) {
+            loadPage(comments.getNextCursor(), false);
+        } else if (comments.hasPrevious() && first < LOAD_THRESHOLD) {
+            loadPage(comments.getPreviousCursor(), true);
+        }
+    }
+
+    private void loadPage(String cursor, boolean previous) {
+        // The first page is what the screen is waiting for, the others are asked for by scrolling
+        int priority = comments.isEmpty() ? RequestScheduler.PRIORITY_VISIBLE : RequestScheduler.PRIORITY_USER_INITIATED;
+        PageCallback callback = new PageCallback(comments, previous);
+        pendingPage = callback;
+        callback.token = UvwebProvider.getNewsfeed(cursor, PAGE_SIZE, priority, callback);
+    }
+
+    private void onPageLoaded(PageCallback callback, Newsfeed page, Response response) {
+        pendingPage = null;
+        adapter.precompute(page.getComments());
+        if (comments.isEmpty()) {
+            if (response == null) {
+                provisionalPage = callback;
+            }
+            comments.append(page.getComments(), page.getNextCursor());
+            updateViews();
+            return;
+        }
+        int count = page.getComments() == null ? 0 : page.getComments().size();
+        if (callback.previous) {
+            int evicted = comments.prepend(page.getComments());
+            adapter.notifyItemRangeRemoved(comments.size() - count, evicted);
+            adapter.notifyItemRangeInserted(0, count);
+        } else {
+            int evicted = comments.append(page.getComments(), page.getNextCursor());
+            adapter.notifyItemRangeRemoved(0, evicted);
+            adapter.notifyItemRangeInserted(comments.size() - count, count);
+        }
+    }
+
+    private void onFirstPageRevalidated(Newsfeed page) {
+        provisionalPage = null;
+        // Once the user scrolled further, the fresher first page is left for the next visit
+        if (pendingPage == null && comments.replaceFirstPage(page.getComments(), page.getNextCursor())) {
+            adapter.precompute(page.getComments());
+            adapter.setComments(comments);
+        }
+    }
+
+    private void onPageFailed(RetrofitError error) {
+        pendingPage = null;
         Log.e(TAG, "Failed loading newsfeed", error);
         Snackbar.make(getView(), getString(R.string.loading_error), Snackbar.LENGTH_SHORT).show();
-        if (getActivity() != null) {
-            setLoadingState(LOADING_STATE_COMPLETE);
-        }
+        setLoadingState(LOADING_STATE_COMPLETE);
     }
 
     @Override
@@ -115,4 +197,34 @@ public class NewsfeedFragment extends Fragment implements Callback<Newsfeed>, Ne
         intent.putExtra(CommentActivity.ARG_UVNAME, comment.getUvName());
         startActivity(intent);
     }
+
+    private class PageCallback implements Callback<Newsfeed> {
+        final NewsfeedWindow window;
+        final boolean previous;
+        CancellationToken token;
+
+        PageCallback(NewsfeedWindow window, boolean previous) {
+            this.window = window;
+            this.previous = previous;
+        }
+
+        @Override
+        public void success(Newsfeed page, Response response) {
+            if (window != comments || getActivity() == null) {
+                return;
+            }
+            if (pendingPage == this) {
+                onPageLoaded(this, page, response);
+            } else if (provisionalPage == this) {
+                onFirstPageRevalidated(page);
+            }
+        }
+
+        @Override
+        public void failure(RetrofitError error) {
+            if (pendingPage == this && getActivity() != null) {
+                onPageFailed(error);
+            }
+        }
+    }
 }
@@ -2,6 +2,7 @@ package fr.utc.assos.uvweb.ui.fragment;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.design.widget.Snackbar;
 import android.support.v4.app.Fragment;
 import android.support.v7.app.AppCompatActivity;
@@ -15,17 +16,20 @@ import android.view.ViewGroup;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.api.CancellationToken;
+import fr.utc.assos.uvweb.api.RequestMetrics;
 import fr.utc.assos.uvweb.api.UvwebProvider;
+import fr.utc.assos.uvweb.data.UvwebRepository;
 import fr.utc.assos.uvweb.model.Comment;
 import fr.utc.assos.uvweb.model.Poll;
 import fr.utc.assos.uvweb.model.UvDetail;
-import fr.utc.assos.uvweb.model.UvListItem;
+import fr.utc.assos.uvweb.model.UvDetailContainer;
 import fr.utc.assos.uvweb.ui.activity.CommentActivity;
 import fr.utc.assos.uvweb.ui.adapter.CommentAdapter;
+import fr.utc.assos.uvweb.ui.adapter.CommentCardPool;
 import retrofit.Callback;
 import retrofit.RetrofitError;
 import retrofit.client.Response;
@@ -34,15 +38,14 @@ public class UvFragment extends Fragment implements Callback<UvDetail>, CommentA
 
     private static final String TAG = UvFragment.class.getSimpleName();
 
-    private static final String ARG_UV = "arg_uv";
+    private static final String ARG_UV_NAME = "arg_uv_name";
+    private static final String ARG_UV_TITLE = "arg_uv_title";
 
     private static final int LOADING_STATE_IN_PROGRESS = 0;
     private static final int LOADING_STATE_COMPLETE = 1;
-    private static final String STATE_COMMENTS = "state_comments";
-    private static final String STATE_POLLS = "state_polls";
-    private static final String STATE_AVERAGE_RATE = "state_averagerate";
 
-    private UvListItem uv;
+    private String uvName;
+    private String uvTitle;
 
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
@@ -51,11 +54,14 @@ public class UvFragment extends Fragment implements Callback<UvDetail>, CommentA
     private List<Comment> comments;
     private List<Poll> polls;
     private float averageRate;
+    private long loadStartedAt;
+    private CancellationToken detailRequest;
 
-    public static UvFragment newInstance(UvListItem uv) {
+    public static UvFragment newInstance(String uvName, String uvTitle) {
         UvFragment fragment = new UvFragment();
         Bundle bundle = new Bundle();
-        bundle.putParcelable(ARG_UV, uv);
+        bundle.putString(ARG_UV_NAME, uvName);
+        bundle.putString(ARG_UV_TITLE, uvTitle);
         fragment.setArguments(bundle);
         return fragment;
     }
@@ -63,7 +69,8 @@ public class UvFragment extends Fragment implements Callback<UvDetail>, CommentA
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        uv = getArguments().getParcelable(ARG_UV);
+        uvName = getArguments().getString(ARG_UV_NAME);
+        uvTitle = getArguments().getString(ARG_UV_TITLE);
     }
 
     @Override
@@ -75,16 +82,19 @@ public class UvFragment extends Fragment implements Callback<UvDetail>, CommentA
         Toolbar toolbar = (Toolbar) rootView.findViewById(R.id.toolbar);
         TextView titleView = (TextView) rootView.findViewById(R.id.title);
 
-        recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
-        adapter = new CommentAdapter(this);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getActivity());
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setRecycledViewPool(CommentCardPool.get());
+        adapter = new CommentAdapter(getActivity(), this);
         recyclerView.setAdapter(adapter);
 
         AppCompatActivity activity = (AppCompatActivity) getActivity();
         activity.setSupportActionBar(toolbar);
         activity.getSupportActionBar().setDisplayHomeAsUpEnabled(true);
-        activity.setTitle(uv.getName());
+        activity.setTitle(uvName);
 
-        titleView.setText(uv.getTitle());
+        titleView.setText(uvTitle);
 
         return rootView;
     }
@@ -93,22 +103,24 @@ public class UvFragment extends Fragment implements Callback<UvDetail>, CommentA
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
         if (savedInstanceState != null) {
-            comments = savedInstanceState.getParcelableArrayList(STATE_COMMENTS);
-            if (comments != null) {
-                polls = savedInstanceState.getParcelableArrayList(STATE_POLLS);
-                averageRate = savedInstanceState.getFloat(STATE_AVERAGE_RATE);
+            UvDetailContainer detail = UvwebRepository.getInstance().getUvDetail(uvName);
+            if (detail != null) {
+                setDetail(detail);
                 updateViews();
                 return;
             }
         }
 
         setLoadingState(LOADING_STATE_IN_PROGRESS);
-        UvwebProvider.getUvDetail(uv.getName(), this);
+        loadStartedAt = SystemClock.elapsedRealtime();
+        detailRequest = UvwebProvider.getUvDetail(uvName, this);
     }
 
     private void updateViews() {
         adapter.setComments(comments, averageRate, polls);
         setLoadingState(LOADING_STATE_COMPLETE);
+        UvwebProvider.getRequestMetrics().recordDisplayed(RequestMetrics.ENDPOINT_UV_DETAIL, loadStartedAt);
+        loadStartedAt = 0;
     }
 
     private void setLoadingState(int loadingState) {
@@ -122,25 +134,37 @@ public class UvFragment extends Fragment implements Callback<UvDetail>, CommentA
     }
 
     @Override
-    public void onSaveInstanceState(Bundle outState) {
-        super.onSaveInstanceState(outState);
-        if (comments != null) {
-            outState.putParcelableArrayList(STATE_COMMENTS, new ArrayList<>(comments));
-            outState.putParcelableArrayList(STATE_POLLS, new ArrayList<>(polls));
-            outState.putFloat(STATE_AVERAGE_RATE, averageRate);
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (detailRequest != null) {
+            detailRequest.cancel();
+            detailRequest = null;
         }
     }
 
     @Override
     public void success(UvDetail uvDetail, Response response) {
-        comments = uvDetail.getDetail().getComments();
-        averageRate = uvDetail.getDetail().getAverageRate();
-        polls = uvDetail.getDetail().getPolls();
+        if (uvDetail.getDetail() == null) {
+            // The server answers without a detail for an unknown UV
+            Log.e(TAG, "No detail for " + uvName);
+            if (getActivity() != null) {
+                Snackbar.make(getView(), getString(R.string.loading_error), Snackbar.LENGTH_SHORT).show();
+                setLoadingState(LOADING_STATE_COMPLETE);
+            }
+            return;
+        }
+        setDetail(uvDetail.getDetail());
         if (getActivity() != null) {
             updateViews();
         }
     }
 
+    private void setDetail(UvDetailContainer detail) {
+        comments = detail.getComments();
+        averageRate = detail.getAverageRate();
+        polls = detail.getPolls();
+    }
+
     @Override
     public void failure(RetrofitError error) {
         Log.e(TAG, error.getMessage(), error);
@@ -154,7 +178,7 @@ public class UvFragment extends Fragment implements Callback<UvDetail>, CommentA
     public void onClick(Comment comment) {
         Intent intent = new Intent(getActivity(), CommentActivity.class);
         intent.putExtra(CommentActivity.ARG_COMMENT, comment);
-        intent.putExtra(CommentActivity.ARG_UVNAME, uv.getName());
+        intent.putExtra(CommentActivity.ARG_UVNAME, uvName);
         startActivity(intent);
     }
 }
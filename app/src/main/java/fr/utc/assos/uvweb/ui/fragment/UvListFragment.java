@@ -1,8 +1,10 @@
 package fr.utc.assos.uvweb.ui.fragment;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.os.Parcelable;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
 import android.support.design.widget.Snackbar;
 import android.support.v4.app.Fragment;
 import android.support.v7.widget.LinearLayoutManager;
@@ -15,31 +17,47 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.api.UvDetailPrefetcher;
+import fr.utc.assos.uvweb.api.CancellationToken;
+import fr.utc.assos.uvweb.api.RequestMetrics;
 import fr.utc.assos.uvweb.api.UvwebProvider;
+import fr.utc.assos.uvweb.data.UvwebRepository;
 import fr.utc.assos.uvweb.model.UvListItem;
 import fr.utc.assos.uvweb.ui.activity.UvActivity;
 import fr.utc.assos.uvweb.ui.adapter.UvListAdapter;
+import fr.utc.assos.uvweb.util.UvSortIndex;
 import retrofit.Callback;
 import retrofit.RetrofitError;
 import retrofit.client.Response;
 
 public class UvListFragment extends Fragment implements Callback<List<UvListItem>>, UvListAdapter.ItemClickListener, SearchView.OnQueryTextListener {
     private static final String TAG = UvListFragment.class.getSimpleName();
-    private static final String STATE_UVS = "uvs";
     private static final int LOADING_STATE_IN_PROGRESS = 0;
     private static final int LOADING_STATE_COMPLETE = 1;
+    private static final String PREF_UV_LIST_ORDER = "pref_uv_list_order";
+
+    private static final int PREFETCH_MAX_CONCURRENT_REQUESTS = 2;
+    private static final long PREFETCH_MAX_BYTES_PER_WINDOW = 512 * 1024;
+    private static final long PREFETCH_WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
 
     private RecyclerView recyclerView;
     private ProgressBar progressBar;
 
     private UvListAdapter adapter;
     private List<UvListItem> uvs;
+    private UvDetailPrefetcher prefetcher;
+    private long loadStartedAt;
+    private DisplayTimer displayTimer;
+    private CancellationToken uvsRequest;
+    private SharedPreferences preferences;
 
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
@@ -50,6 +68,42 @@ public class UvListFragment extends Fragment implements Callback<List<UvListItem
         MenuItem searchItem = menu.findItem(R.id.action_search_uv);
         SearchView searchView = (SearchView) searchItem.getActionView();
         searchView.setOnQueryTextListener(this);
+
+        menu.findItem(getSortItemId(adapter.getOrder())).setChecked(true);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.action_sort_uv_name:
+                setOrder(UvSortIndex.ORDER_NAME, item);
+                return true;
+            case R.id.action_sort_uv_rating:
+                setOrder(UvSortIndex.ORDER_RATING, item);
+                return true;
+            case R.id.action_sort_uv_comment_count:
+                setOrder(UvSortIndex.ORDER_COMMENT_COUNT, item);
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+    private void setOrder(int order, MenuItem item) {
+        item.setChecked(true);
+        adapter.setOrder(order);
+        preferences.edit().putInt(PREF_UV_LIST_ORDER, order).apply();
+    }
+
+    private static int getSortItemId(int order) {
+        switch (order) {
+            case UvSortIndex.ORDER_RATING:
+                return R.id.action_sort_uv_rating;
+            case UvSortIndex.ORDER_COMMENT_COUNT:
+                return R.id.action_sort_uv_comment_count;
+            default:
+                return R.id.action_sort_uv_name;
+        }
     }
 
     @Override
@@ -62,8 +116,21 @@ public class UvListFragment extends Fragment implements Callback<List<UvListItem
 
         recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
         adapter = new UvListAdapter(this);
+        adapter.setFullTextIndex(UvwebProvider.getFullTextIndex());
+        preferences = PreferenceManager.getDefaultSharedPreferences(getActivity());
+        adapter.setOrder(preferences.getInt(PREF_UV_LIST_ORDER, UvSortIndex.ORDER_NAME));
         recyclerView.setAdapter(adapter);
 
+        prefetcher = new UvDetailPrefetcher(PREFETCH_MAX_CONCURRENT_REQUESTS, PREFETCH_MAX_BYTES_PER_WINDOW, PREFETCH_WINDOW_MS);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchVisibleUvs();
+                }
+            }
+        });
+
         return root;
     }
 
@@ -71,14 +138,15 @@ public class UvListFragment extends Fragment implements Callback<List<UvListItem
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
         if (savedInstanceState != null) {
-            uvs = savedInstanceState.getParcelableArrayList(STATE_UVS);
+            uvs = UvwebRepository.getInstance().getUvs();
             if (uvs != null) {
                 updateViews();
                 return;
             }
         }
         setLoadingState(LOADING_STATE_IN_PROGRESS);
-        UvwebProvider.getUvs(this);
+        loadStartedAt = SystemClock.elapsedRealtime();
+        uvsRequest = UvwebProvider.getUvs(this);
     }
 
     private void setLoadingState(int loadingState) {
@@ -100,16 +168,52 @@ public class UvListFragment extends Fragment implements Callback<List<UvListItem
     }
 
     @Override
-    public void onSaveInstanceState(Bundle outState) {
-        super.onSaveInstanceState(outState);
-        if (uvs != null) {
-            outState.putParcelableArrayList(STATE_UVS, new ArrayList<Parcelable>(uvs));
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (uvsRequest != null) {
+            uvsRequest.cancel();
+            uvsRequest = null;
+        }
+        prefetcher.cancel();
+        prefetcher = null;
+        if (displayTimer != null) {
+            displayTimer.cancel();
+            displayTimer = null;
         }
     }
 
     private void updateViews() {
+        if (loadStartedAt != 0 && UvwebProvider.getRequestMetrics().isEnabled()) {
+            if (displayTimer != null) {
+                displayTimer.cancel();
+            }
+            displayTimer = new DisplayTimer(loadStartedAt);
+        }
+        loadStartedAt = 0;
         adapter.setUvs(uvs);
         setLoadingState(LOADING_STATE_COMPLETE);
+        recyclerView.post(new Runnable() {
+            @Override
+            public void run() {
+                if (prefetcher != null) {
+                    prefetchVisibleUvs();
+                }
+            }
+        });
+    }
+
+    private void prefetchVisibleUvs() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        List<String> uvNames = new ArrayList<>(last - first + 1);
+        for (int position = first; position <= last && position < adapter.getItemCount(); position++) {
+            uvNames.add(adapter.getUv(position).getName());
+        }
+        prefetcher.prefetch(uvNames);
     }
 
     @Override
@@ -124,7 +228,8 @@ public class UvListFragment extends Fragment implements Callback<List<UvListItem
     @Override
     public void onClick(UvListItem uv) {
         Intent intent = new Intent(getActivity(), UvActivity.class);
-        intent.putExtra(UvActivity.ARG_UV, uv);
+        intent.putExtra(UvActivity.ARG_UV_NAME, uv.getName());
+        intent.putExtra(UvActivity.ARG_UV_TITLE, uv.getTitle());
         startActivity(intent);
     }
 
@@ -145,4 +250,65 @@ public class UvListFragment extends Fragment implements Callback<List<UvListItem
         adapter.filter(s);
         return false;
     }
+
+    /**
+     * Records the display time of the load once the adapter has dispatched its first update, which it may compute
+     * off the main thread, and the frame showing the new rows is about to be drawn.
+     */
+    private class DisplayTimer extends RecyclerView.AdapterDataObserver implements ViewTreeObserver.OnPreDrawListener {
+        private final long loadStartedAt;
+        private boolean dispatched;
+
+        DisplayTimer(long loadStartedAt) {
+            this.loadStartedAt = loadStartedAt;
+            adapter.registerAdapterDataObserver(this);
+        }
+
+        @Override
+        public void onChanged() {
+            onUpdateDispatched();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            onUpdateDispatched();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            onUpdateDispatched();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            onUpdateDispatched();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            onUpdateDispatched();
+        }
+
+        private void onUpdateDispatched() {
+            dispatched = true;
+            adapter.unregisterAdapterDataObserver(this);
+            recyclerView.getViewTreeObserver().addOnPreDrawListener(this);
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+            UvwebProvider.getRequestMetrics().recordDisplayed(RequestMetrics.ENDPOINT_UVS, loadStartedAt);
+            displayTimer = null;
+            return true;
+        }
+
+        void cancel() {
+            if (dispatched) {
+                recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+            } else {
+                adapter.unregisterAdapterDataObserver(this);
+            }
+        }
+    }
 }
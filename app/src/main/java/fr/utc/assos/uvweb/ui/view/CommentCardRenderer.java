@@ -0,0 +1,234 @@
+package fr.utc.assos.uvweb.ui.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Typeface;
+import android.os.Process;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.content.ContextCompat;
+import android.text.Layout;
+import android.text.SpannableStringBuilder;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.util.TypedValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.model.Comment;
+
+/**
+ * Text layouts of the {@link CommentCardView}s of a list, cached by comment and width.
+ * The layouts of the comments about to be displayed are built on a worker thread as soon as they arrive,
+ * so that binding a card is only a cache lookup instead of measuring its text on the main thread.
+ * <p>
+ * The paints are never modified once created, which lets the worker build layouts while the main thread draws.
+ */
+public class CommentCardRenderer {
+    private static final int MAX_BODY_LINES = 10;
+    private static final int CACHE_SIZE = 200;
+    /**
+     * Margin and horizontal padding of item_comment_card, to guess the width of the cards before the first is measured.
+     */
+    private static final int CARD_MARGIN_DP = 6;
+    private static final int CARD_PADDING_DP = 16;
+    private static final int SECTION_MARGIN_DP = 16;
+    private static final int ACTION_HEIGHT_DP = 36;
+    private static final int ACTION_PADDING_DP = 4;
+    private static final ExecutorService LAYOUT_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "uvweb-text-layout");
+        }
+    });
+
+    private final TextProvider textProvider;
+    private final TextPaint datePaint;
+    private final TextPaint headlinePaint;
+    private final TextPaint subtitlePaint;
+    private final TextPaint actionPaint;
+    private final TextPaint bodyPaint;
+    private final int sectionMargin;
+    private final int actionHeight;
+    private final int actionPadding;
+    private final StaticLayout actionLayout;
+    private final LruCache<Comment, Card> cache = new LruCache<>(CACHE_SIZE);
+    /**
+     * Width of the last card measured, which the next cards are most likely to have.
+     */
+    private volatile int expectedWidth;
+
+    public CommentCardRenderer(Context context, TextProvider textProvider) {
+        this.textProvider = textProvider;
+        Resources resources = context.getResources();
+        datePaint = createPaint(context, 12, R.color.gray_dark);
+        headlinePaint = createPaint(context, 24, R.color.black);
+        subtitlePaint = createPaint(context, 14, R.color.gray_dark);
+        actionPaint = createPaint(context, 14, R.color.teal);
+        actionPaint.setTypeface(Typeface.create("sans-serif-medium", Typeface.NORMAL));
+        bodyPaint = createPaint(context, 14, R.color.gray_darker);
+        sectionMargin = dpToPx(resources, SECTION_MARGIN_DP);
+        actionHeight = dpToPx(resources, ACTION_HEIGHT_DP);
+        actionPadding = dpToPx(resources, ACTION_PADDING_DP);
+        String action = context.getString(R.string.view).toUpperCase(Locale.getDefault());
+        actionLayout = createLayout(action, actionPaint, (int) Math.ceil(actionPaint.measureText(action)));
+        expectedWidth = resources.getDisplayMetrics().widthPixels - 2 * dpToPx(resources, CARD_MARGIN_DP + CARD_PADDING_DP);
+    }
+
+    private static TextPaint createPaint(Context context, int textSizeSp, int colorId) {
+        TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, textSizeSp, context.getResources().getDisplayMetrics()));
+        paint.setColor(ContextCompat.getColor(context, colorId));
+        return paint;
+    }
+
+    private static int dpToPx(Resources resources, int dp) {
+        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, resources.getDisplayMetrics());
+    }
+
+    /**
+     * Builds the layouts of {@code comments} in the background, at the width of the cards last measured.
+     */
+    public void precompute(List<Comment> comments) {
+        if (comments == null || comments.isEmpty()) {
+            return;
+        }
+        final List<Comment> pending = new ArrayList<>(comments);
+        final int width = expectedWidth;
+        LAYOUT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Comment comment : pending) {
+                    Card card = cache.get(comment);
+                    if (card == null || card.width != width) {
+                        cache.put(comment, createCard(comment, width));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for the layouts queued for precomputation so far.
+     */
+    @VisibleForTesting
+    static void awaitPrecomputed() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        LAYOUT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+
+    /**
+     * @return the layouts of {@code comment} at {@code width}, built on the calling thread if they are not cached
+     */
+    Card getCard(Comment comment, int width) {
+        expectedWidth = width;
+        Card card = cache.get(comment);
+        if (card == null || card.width != width) {
+            card = createCard(comment, width);
+            cache.put(comment, card);
+        }
+        return card;
+    }
+
+    private Card createCard(Comment comment, int width) {
+        width = Math.max(width, 0);
+        return new Card(width,
+                createLayout(comment.getDate(), datePaint, width),
+                createLayout(textProvider.getHeadline(comment), headlinePaint, width),
+                createLayout(textProvider.getSubtitle(comment), subtitlePaint, width),
+                createBodyLayout(comment.getComment(), width));
+    }
+
+    private static StaticLayout createLayout(CharSequence text, TextPaint paint, int width) {
+        return new StaticLayout(text == null ? "" : text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1, 0, false);
+    }
+
+    /**
+     * Keeps the first lines of the body, ellipsizing the last one, since StaticLayout only limits
+     * the number of lines from Marshmallow on.
+     */
+    private StaticLayout createBodyLayout(String body, int width) {
+        StaticLayout layout = createLayout(body, bodyPaint, width);
+        if (layout.getLineCount() <= MAX_BODY_LINES) {
+            return layout;
+        }
+        int lastLineStart = layout.getLineStart(MAX_BODY_LINES - 1);
+        CharSequence lastLine = TextUtils.ellipsize(body.substring(lastLineStart).replace('\n', ' '), bodyPaint, width, TextUtils.TruncateAt.END);
+        return createLayout(new SpannableStringBuilder(body, 0, lastLineStart).append(lastLine), bodyPaint, width);
+    }
+
+    /**
+     * Texts of a card that depend on the list it belongs to. Called on the worker thread.
+     */
+    public interface TextProvider {
+        CharSequence getHeadline(Comment comment);
+
+        CharSequence getSubtitle(Comment comment);
+    }
+
+    /**
+     * Layouts of a card, stacked from top to bottom: date, headline, subtitle, action and body.
+     */
+    final class Card {
+        private final int width;
+        private final StaticLayout dateLayout;
+        private final StaticLayout headlineLayout;
+        private final StaticLayout subtitleLayout;
+        private final StaticLayout bodyLayout;
+        private final int height;
+
+        Card(int width, StaticLayout dateLayout, StaticLayout headlineLayout, StaticLayout subtitleLayout, StaticLayout bodyLayout) {
+            this.width = width;
+            this.dateLayout = dateLayout;
+            this.headlineLayout = headlineLayout;
+            this.subtitleLayout = subtitleLayout;
+            this.bodyLayout = bodyLayout;
+            height = dateLayout.getHeight() + headlineLayout.getHeight() + subtitleLayout.getHeight()
+                    + sectionMargin + actionHeight + sectionMargin + bodyLayout.getHeight();
+        }
+
+        int getHeight() {
+            return height;
+        }
+
+        void draw(Canvas canvas) {
+            int saveCount = canvas.save();
+            dateLayout.draw(canvas);
+            canvas.translate(0, dateLayout.getHeight());
+            headlineLayout.draw(canvas);
+            canvas.translate(0, headlineLayout.getHeight());
+            subtitleLayout.draw(canvas);
+            canvas.translate(0, subtitleLayout.getHeight() + sectionMargin);
+
+            canvas.save();
+            canvas.translate(actionPadding, (actionHeight - actionLayout.getHeight()) / 2);
+            actionLayout.draw(canvas);
+            canvas.restore();
+            canvas.translate(0, actionHeight + sectionMargin);
+
+            bodyLayout.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+}
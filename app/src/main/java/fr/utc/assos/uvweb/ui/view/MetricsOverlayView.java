@@ -0,0 +1,81 @@
+package fr.utc.assos.uvweb.ui.view;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Typeface;
+import android.support.v4.content.ContextCompat;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.api.RequestMetrics;
+import fr.utc.assos.uvweb.api.UvwebProvider;
+
+/**
+ * Debug overlay showing the median of every {@link RequestMetrics} histogram, refreshed every second.
+ * Tapping it collapses it.
+ */
+public class MetricsOverlayView extends TextView implements View.OnClickListener {
+    private static final long REFRESH_INTERVAL_MS = 1000;
+    private static final float TEXT_SIZE_SP = 9;
+    private static final int PADDING_DP = 4;
+
+    private boolean collapsed;
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    public MetricsOverlayView(Context context) {
+        super(context);
+        int padding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, PADDING_DP, getResources().getDisplayMetrics());
+        setPadding(padding, padding, padding, padding);
+        setTypeface(Typeface.MONOSPACE);
+        setTextSize(TypedValue.COMPLEX_UNIT_SP, TEXT_SIZE_SP);
+        setTextColor(ContextCompat.getColor(context, R.color.white));
+        setBackgroundColor(ContextCompat.getColor(context, R.color.black_transparent));
+        setOnClickListener(this);
+    }
+
+    /**
+     * Adds the overlay at the bottom of the activity content, if metrics are being recorded.
+     */
+    public static void attach(Activity activity) {
+        if (!UvwebProvider.getRequestMetrics().isEnabled()) {
+            return;
+        }
+        ViewGroup content = (ViewGroup) activity.findViewById(android.R.id.content);
+        content.addView(new MetricsOverlayView(activity), new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM));
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        post(refreshRunnable);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(refreshRunnable);
+    }
+
+    @Override
+    public void onClick(View v) {
+        collapsed = !collapsed;
+        refresh();
+    }
+
+    private void refresh() {
+        setText(collapsed ? "metrics" : UvwebProvider.getRequestMetrics().getSummary());
+    }
+}
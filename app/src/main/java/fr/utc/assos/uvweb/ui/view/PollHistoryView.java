@@ -0,0 +1,132 @@
+package fr.utc.assos.uvweb.ui.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.util.PollSeries;
+
+/**
+ * Bar chart of the success rate of a UV per semester, drawn from a {@link PollSeries}.
+ * Bars narrow as semesters are added, and only every few labels are drawn once they no longer fit,
+ * so any number of semesters fits in the same view. Drawing allocates nothing.
+ */
+public class PollHistoryView extends View {
+    private static final int CHART_HEIGHT_DP = 64;
+    private static final int MAX_BAR_WIDTH_DP = 24;
+    private static final int TEXT_MARGIN_DP = 4;
+    private static final int TEXT_SIZE_SP = 12;
+    private static final float BAR_WIDTH_RATIO = 0.6f;
+    private static final float MAX_RATE = 100;
+
+    private final Paint barPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF bar = new RectF();
+    private final char[] rateText = new char[4];
+    private final int chartHeight;
+    private final int maxBarWidth;
+    private final int textMargin;
+    private final float textHeight;
+    private final float labelWidth;
+    private final float rateWidth;
+
+    private PollSeries series = PollSeries.EMPTY;
+
+    public PollHistoryView(Context context) {
+        this(context, null);
+    }
+
+    public PollHistoryView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public PollHistoryView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        chartHeight = dpToPx(CHART_HEIGHT_DP);
+        maxBarWidth = dpToPx(MAX_BAR_WIDTH_DP);
+        textMargin = dpToPx(TEXT_MARGIN_DP);
+        barPaint.setColor(ContextCompat.getColor(context, R.color.teal));
+        textPaint.setColor(ContextCompat.getColor(context, R.color.gray_dark));
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, TEXT_SIZE_SP, getResources().getDisplayMetrics()));
+        Paint.FontMetrics fontMetrics = textPaint.getFontMetrics();
+        textHeight = fontMetrics.descent - fontMetrics.ascent;
+        labelWidth = textPaint.measureText("A00") + textMargin;
+        rateWidth = textPaint.measureText("100%") + textMargin;
+    }
+
+    private int dpToPx(int dp) {
+        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, getResources().getDisplayMetrics());
+    }
+
+    /**
+     * Only redraws the view when the series changes, so it can be called on every bind.
+     */
+    public void setSeries(PollSeries series) {
+        if (series == this.series) {
+            return;
+        }
+        this.series = series;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = getPaddingTop() + (int) Math.ceil(textHeight + textMargin) + chartHeight
+                + (int) Math.ceil(textMargin + textHeight) + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int count = series.size();
+        if (count == 0) {
+            return;
+        }
+        float left = getPaddingLeft();
+        float slotWidth = (float) (getWidth() - getPaddingLeft() - getPaddingRight()) / count;
+        float barWidth = Math.min(slotWidth * BAR_WIDTH_RATIO, maxBarWidth);
+        float chartBottom = getPaddingTop() + textHeight + textMargin + chartHeight;
+        float labelBaseline = chartBottom + textMargin - textPaint.ascent();
+        // Labels are drawn from the most recent semester backwards, so that the latest one is always shown
+        int labelStep = (int) Math.ceil(labelWidth / slotWidth);
+        boolean drawRates = slotWidth >= rateWidth;
+        char[] labels = series.getLabels();
+
+        for (int i = 0; i < count; i++) {
+            float rate = Math.max(0, Math.min(series.getSuccessRate(i), MAX_RATE));
+            float center = left + slotWidth * (i + 0.5f);
+            float top = chartBottom - chartHeight * rate / MAX_RATE;
+            bar.set(center - barWidth / 2, top, center + barWidth / 2, chartBottom);
+            canvas.drawRect(bar, barPaint);
+            if (drawRates) {
+                canvas.drawText(rateText, 0, formatRate(rate), center, top - textMargin - textPaint.descent(), textPaint);
+            }
+            if ((count - 1 - i) % labelStep == 0) {
+                canvas.drawText(labels, i * PollSeries.LABEL_LENGTH, PollSeries.LABEL_LENGTH, center, labelBaseline, textPaint);
+            }
+        }
+    }
+
+    /**
+     * Writes the rounded rate followed by a percent sign into {@link #rateText}.
+     *
+     * @return the number of characters written
+     */
+    private int formatRate(float rate) {
+        int value = Math.round(rate);
+        int length = value >= 100 ? 3 : (value >= 10 ? 2 : 1);
+        for (int i = length - 1; i >= 0; i--) {
+            rateText[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        rateText[length] = '%';
+        return length + 1;
+    }
+}
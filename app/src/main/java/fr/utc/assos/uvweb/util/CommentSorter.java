@@ -0,0 +1,88 @@
+package fr.utc.assos.uvweb.util;
+
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.Comment;
+
+public final class CommentSorter {
+    /**
+     * Sort key of a date that could not be parsed.
+     */
+    public static final int UNKNOWN_DATE = -1;
+
+    private static final long MAX_DATE_KEY = 1L << 30;
+
+    private CommentSorter() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * Sorts the comments from the most recent to the oldest.
+     * Each date is parsed once, comments with the same date keep their relative order
+     * and comments whose date cannot be parsed come last.
+     */
+    public static void sortByDate(List<Comment> comments) {
+        int size = comments.size();
+        // The date key is inverted so that an ascending sort puts recent comments first
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            long dateKey = parseDateKey(comments.get(i).getDate());
+            keys[i] = SortKeys.pack(MAX_DATE_KEY - dateKey, i);
+        }
+        int[] positions = SortKeys.sortedPositions(keys);
+
+        Comment[] sorted = new Comment[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = comments.get(positions[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            comments.set(i, sorted[i]);
+        }
+    }
+
+    /**
+     * Turns a d/M/yy date into a key that grows with time, without allocating.
+     * Days and months may have one or two digits, and years two or four, two-digit years being in the 2000s.
+     *
+     * @return the key, or {@link #UNKNOWN_DATE} if the date cannot be parsed
+     */
+    public static int parseDateKey(String date) {
+        if (date == null) {
+            return UNKNOWN_DATE;
+        }
+        int daySlash = date.indexOf('/');
+        int monthSlash = date.indexOf('/', daySlash + 1);
+        int yearLength = date.length() - monthSlash - 1;
+        if (daySlash < 0 || daySlash > 2 || monthSlash < 0 || monthSlash - daySlash > 3 || (yearLength != 2 && yearLength != 4)) {
+            return UNKNOWN_DATE;
+        }
+        int day = parseDigits(date, 0, daySlash);
+        int month = parseDigits(date, daySlash + 1, monthSlash);
+        int year = parseDigits(date, monthSlash + 1, date.length());
+        if (day < 1 || day > 31 || month < 1 || month > 12 || year < 0) {
+            return UNKNOWN_DATE;
+        }
+        if (yearLength == 2) {
+            year += 2000;
+        }
+        return (year * 12 + month - 1) * 31 + day - 1;
+    }
+
+    /**
+     * @return the number written from {@code start} to {@code end}, or -1 if it is empty or not only digits
+     */
+    private static int parseDigits(String value, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+}
@@ -0,0 +1,90 @@
+package fr.utc.assos.uvweb.util;
+
+import java.util.List;
+import java.util.Locale;
+
+import fr.utc.assos.uvweb.model.Poll;
+
+/**
+ * Success rates of a UV per semester, in chronological order, stored as primitive arrays so that
+ * they can be drawn without formatting or allocating anything.
+ * Labels are three characters long, such as "P15" for spring 2015, and are stored back to back.
+ */
+public final class PollSeries {
+    public static final PollSeries EMPTY = new PollSeries(new float[0], new int[0], new char[0]);
+    public static final int LABEL_LENGTH = 3;
+
+    private final float[] successRates;
+    /**
+     * Year in the high bits, then 1 for autumn and 0 for spring, so that keys grow with time.
+     */
+    private final int[] semesterKeys;
+    private final char[] labels;
+
+    private PollSeries(float[] successRates, int[] semesterKeys, char[] labels) {
+        this.successRates = successRates;
+        this.semesterKeys = semesterKeys;
+        this.labels = labels;
+    }
+
+    public static PollSeries from(List<Poll> polls) {
+        if (polls == null || polls.isEmpty()) {
+            return EMPTY;
+        }
+        int size = polls.size();
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = SortKeys.pack(semesterKey(polls.get(i)), i);
+        }
+        int[] positions = SortKeys.sortedPositions(keys);
+
+        float[] successRates = new float[size];
+        int[] semesterKeys = new int[size];
+        char[] labels = new char[size * LABEL_LENGTH];
+        for (int i = 0; i < size; i++) {
+            Poll poll = polls.get(positions[i]);
+            successRates[i] = poll.getSuccessRate();
+            semesterKeys[i] = semesterKey(poll);
+            int twoDigitYear = Math.abs(poll.getYear() % 100);
+            labels[i * LABEL_LENGTH] = getSeasonInitial(poll);
+            labels[i * LABEL_LENGTH + 1] = (char) ('0' + twoDigitYear / 10);
+            labels[i * LABEL_LENGTH + 2] = (char) ('0' + twoDigitYear % 10);
+        }
+        return new PollSeries(successRates, semesterKeys, labels);
+    }
+
+    private static int semesterKey(Poll poll) {
+        return Math.max(poll.getYear(), 0) << 1 | (getSeasonInitial(poll) == 'A' ? 1 : 0);
+    }
+
+    private static char getSeasonInitial(Poll poll) {
+        String season = poll.getSeason();
+        return season == null || season.isEmpty() ? '?' : season.toUpperCase(Locale.FRENCH).charAt(0);
+    }
+
+    public int size() {
+        return successRates.length;
+    }
+
+    public boolean isEmpty() {
+        return successRates.length == 0;
+    }
+
+    /**
+     * @return the success rate of the semester, in percent
+     */
+    public float getSuccessRate(int index) {
+        return successRates[index];
+    }
+
+    public int getSemesterKey(int index) {
+        return semesterKeys[index];
+    }
+
+    /**
+     * @return the labels of all semesters, the one at {@code index} starting at {@code index * LABEL_LENGTH}
+     */
+    public char[] getLabels() {
+        return labels;
+    }
+}
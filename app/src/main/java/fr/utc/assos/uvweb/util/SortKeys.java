@@ -0,0 +1,39 @@
+package fr.utc.assos.uvweb.util;
+
+import java.util.Arrays;
+
+/**
+ * Stable sort of positions by a primitive key, without boxing: each key holds the sort key in its high bits
+ * and the position in its low bits, so that sorting the keys sorts the positions and keeps equal ones in order.
+ */
+public final class SortKeys {
+    private static final int INDEX_BITS = 32;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private SortKeys() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * @param sortKey non-negative and less than 2^31
+     * @return the key of {@code position} in an ascending sort on {@code sortKey}
+     */
+    public static long pack(long sortKey, int position) {
+        return (sortKey << INDEX_BITS) | position;
+    }
+
+    /**
+     * Sorts {@code keys} in place.
+     *
+     * @param keys built with {@link #pack(long, int)}
+     * @return the positions, in ascending order of their sort key
+     */
+    public static int[] sortedPositions(long[] keys) {
+        Arrays.sort(keys);
+        int[] positions = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            positions[i] = (int) (keys[i] & INDEX_MASK);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,40 @@
+package fr.utc.assos.uvweb.util;
+
+/**
+ * 64-bit FNV-1a hashes of model contents, used as RecyclerView stable IDs so that an item keeps its ID
+ * when the list is reloaded, while a collision stays unlikely over thousands of items.
+ */
+public final class StableIds {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /**
+     * Hashed after each value, so that ("ab", "c") and ("a", "bc") differ. Noncharacters, which never occur in text.
+     */
+    private static final char SEPARATOR = '\uFFFF';
+    private static final char NULL = '\uFFFE';
+
+    private StableIds() {
+        // Class should not be instantiated
+    }
+
+    public static long start() {
+        return FNV_OFFSET_BASIS;
+    }
+
+    /**
+     * @return {@code hash} combined with {@code value}
+     */
+    public static long add(long hash, String value) {
+        if (value == null) {
+            return mix(mix(hash, NULL), SEPARATOR);
+        }
+        for (int i = 0, length = value.length(); i < length; i++) {
+            hash = mix(hash, value.charAt(i));
+        }
+        return mix(hash, SEPARATOR);
+    }
+
+    private static long mix(long hash, char c) {
+        return (hash ^ c) * FNV_PRIME;
+    }
+}
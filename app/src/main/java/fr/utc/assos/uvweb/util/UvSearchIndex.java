@@ -0,0 +1,101 @@
+package fr.utc.assos.uvweb.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Sorted array of normalized UV names, answering prefix queries with a binary search.
+ * Immutable once built, so it can be queried from any thread.
+ */
+public final class UvSearchIndex {
+    private final List<UvListItem> uvs;
+    private final String[] names;
+    private final int[] positions;
+
+    public UvSearchIndex(List<UvListItem> uvs) {
+        this.uvs = new ArrayList<>(uvs);
+        int size = this.uvs.size();
+
+        final String[] normalizedNames = new String[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            normalizedNames[i] = normalize(this.uvs.get(i).getName());
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return normalizedNames[lhs].compareTo(normalizedNames[rhs]);
+            }
+        });
+
+        names = new String[size];
+        positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = order[i];
+            names[i] = normalizedNames[order[i]];
+        }
+    }
+
+    public int size() {
+        return uvs.size();
+    }
+
+    /**
+     * @return the UVs whose name starts with {@code query}, in catalogue order
+     */
+    public List<UvListItem> search(String query) {
+        String prefix = normalize(query);
+        if (prefix.length() == 0) {
+            return new ArrayList<>(uvs);
+        }
+
+        int start = lowerBound(prefix);
+        int end = start;
+        while (end < names.length && names[end].startsWith(prefix)) {
+            end++;
+        }
+
+        int[] matches = Arrays.copyOfRange(positions, start, end);
+        Arrays.sort(matches);
+        List<UvListItem> results = new ArrayList<>(matches.length);
+        for (int position : matches) {
+            results.add(uvs.get(position));
+        }
+        return results;
+    }
+
+    /**
+     * @return the UV with exactly this name, or null if it is not in the catalogue
+     */
+    public UvListItem find(String name) {
+        String key = normalize(name);
+        int index = lowerBound(key);
+        if (index < names.length && names[index].equals(key)) {
+            return uvs.get(positions[index]);
+        }
+        return null;
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (names[middle].compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public static String normalize(String value) {
+        return TextNormalizer.fold(value);
+    }
+}
@@ -0,0 +1,135 @@
+package fr.utc.assos.uvweb.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Permutations of the catalogue for each sort order, so that switching order or sorting a search result
+ * only walks an array of positions. Sorted views share the UVs of the catalogue instead of copying them.
+ * Immutable once built, so it can be queried from any thread.
+ */
+public final class UvSortIndex {
+    /**
+     * Order of the catalogue as served by the API, which is {@link UvListItem#NAME_ORDER}.
+     */
+    public static final int ORDER_NAME = 0;
+    /**
+     * Best rated first, UVs without a rating last.
+     */
+    public static final int ORDER_RATING = 1;
+    /**
+     * Most commented first.
+     */
+    public static final int ORDER_COMMENT_COUNT = 2;
+
+    private static final long MAX_KEY = Integer.MAX_VALUE;
+
+    private final List<UvListItem> uvs;
+    private final int[] byRating;
+    private final int[] byCommentCount;
+
+    /**
+     * Reads the whole catalogue, so must not be called from the main thread.
+     *
+     * @param uvs the catalogue, which must not be modified afterwards
+     */
+    public UvSortIndex(List<UvListItem> uvs) {
+        this.uvs = uvs;
+        int size = uvs.size();
+        // Inverted keys sort descending, UVs with the same key stay in catalogue order
+        long[] rateKeys = new long[size];
+        long[] commentCountKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            UvListItem uv = uvs.get(i);
+            rateKeys[i] = SortKeys.pack(rateKey(uv), i);
+            commentCountKeys[i] = SortKeys.pack(MAX_KEY - Math.max(uv.getCommentCount(), 0), i);
+        }
+        byRating = SortKeys.sortedPositions(rateKeys);
+        byCommentCount = SortKeys.sortedPositions(commentCountKeys);
+    }
+
+    /**
+     * The bits of a non-negative float grow with its value.
+     */
+    private static long rateKey(UvListItem uv) {
+        if (!uv.hasGlobalRate()) {
+            return MAX_KEY;
+        }
+        return MAX_KEY - 1 - Float.floatToIntBits(Math.max(uv.getGlobalRate(), 0f));
+    }
+
+    public int size() {
+        return uvs.size();
+    }
+
+    /**
+     * @param order one of the {@code ORDER_} constants
+     * @return a read-only view of the catalogue in that order
+     */
+    public List<UvListItem> sort(int order) {
+        int[] positions = getPositions(order);
+        return positions == null ? uvs : new SortedList(positions);
+    }
+
+    /**
+     * @param order one of the {@code ORDER_} constants
+     * @param subset UVs of the catalogue, such as the result of a search, matched by name since they may
+     *               have been decoded again since the index was built
+     * @return a read-only view of the UVs of {@code subset} in that order
+     */
+    public List<UvListItem> sort(int order, Collection<UvListItem> subset) {
+        Set<String> members = new HashSet<>(subset.size() * 2);
+        for (UvListItem uv : subset) {
+            members.add(uv.getName());
+        }
+        int[] positions = getPositions(order);
+        int[] kept = new int[members.size()];
+        int count = 0;
+        for (int i = 0, size = uvs.size(); i < size && count < kept.length; i++) {
+            int position = positions == null ? i : positions[i];
+            if (members.contains(uvs.get(position).getName())) {
+                kept[count++] = position;
+            }
+        }
+        return new SortedList(count == kept.length ? kept : Arrays.copyOf(kept, count));
+    }
+
+    /**
+     * @return the positions of the UVs in that order, or null for the catalogue order
+     */
+    private int[] getPositions(int order) {
+        switch (order) {
+            case ORDER_RATING:
+                return byRating;
+            case ORDER_COMMENT_COUNT:
+                return byCommentCount;
+            default:
+                return null;
+        }
+    }
+
+    private final class SortedList extends AbstractList<UvListItem> implements RandomAccess {
+        private final int[] positions;
+
+        SortedList(int[] positions) {
+            this.positions = positions;
+        }
+
+        @Override
+        public UvListItem get(int index) {
+            return uvs.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+}
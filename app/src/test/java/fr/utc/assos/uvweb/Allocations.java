@@ -0,0 +1,29 @@
+package fr.utc.assos.uvweb;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes allocated by the test thread, with the allocation counter of the JVM running the tests.
+ */
+public final class Allocations {
+    private Allocations() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * @return the bytes allocated while running {@code task} {@code count} times
+     */
+    public static long measure(Task task, int count) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < count; i++) {
+            task.run(i);
+        }
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    public interface Task {
+        void run(int iteration);
+    }
+}
@@ -0,0 +1,42 @@
+package fr.utc.assos.uvweb;
+
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the main looper of a Robolectric test from the test thread, which is the main thread.
+ * Tests pause the looper first, so that what the worker threads post is not run on those threads.
+ */
+public final class MainLooper {
+    private static final long POLL_INTERVAL_MS = 2;
+
+    private MainLooper() {
+        // Class should not be instantiated
+    }
+
+    public static void pause() {
+        ShadowLooper.pauseMainLooper();
+    }
+
+    /**
+     * Runs the tasks posted to the main thread until {@code condition} holds.
+     *
+     * @throws AssertionError if it does not hold within {@code timeoutMs}
+     */
+    public static void runUntil(Condition condition, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        ShadowLooper.runUiThreadTasks();
+        while (!condition.isMet()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMs + " ms");
+            }
+            Thread.sleep(POLL_INTERVAL_MS);
+            ShadowLooper.runUiThreadTasks();
+        }
+    }
+
+    public interface Condition {
+        boolean isMet();
+    }
+}
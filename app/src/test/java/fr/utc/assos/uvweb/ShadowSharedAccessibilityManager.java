@@ -0,0 +1,31 @@
+package fr.utc.assos.uvweb;
+
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.annotation.HiddenApi;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Robolectric 3.1 creates an accessibility manager each time a view asks for it, such as on every
+ * {@code TextView.setText}, and each one registers an observer that is never removed. Sharing one per context
+ * keeps tests that count allocations or time views from measuring that leak.
+ * Registered for every test in robolectric.properties.
+ */
+@Implements(AccessibilityManager.class)
+public class ShadowSharedAccessibilityManager extends ShadowAccessibilityManager {
+    private static Context context;
+    private static AccessibilityManager instance;
+
+    @HiddenApi
+    @Implementation
+    public static synchronized AccessibilityManager getInstance(Context context) throws Exception {
+        if (ShadowSharedAccessibilityManager.context != context) {
+            ShadowSharedAccessibilityManager.context = context;
+            instance = ShadowAccessibilityManager.getInstance(context);
+        }
+        return instance;
+    }
+}
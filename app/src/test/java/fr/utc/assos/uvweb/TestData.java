@@ -0,0 +1,82 @@
+package fr.utc.assos.uvweb;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import fr.utc.assos.uvweb.api.ModelTypeAdapterFactory;
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Deterministic data shaped like the UVweb API responses, serialized the way the app parses it.
+ */
+public final class TestData {
+    private static final long SEED = 42;
+    private static final String[] WORDS = {
+            "Thermodynamique", "Réseaux", "Bases", "de", "données", "Algorithmique", "Mécanique", "Systèmes",
+            "Management", "Électronique", "Probabilités", "Statistiques", "Génie", "logiciel", "Chimie", "Physique",
+            "projet", "examen", "médian", "final", "TD", "cours", "prof", "intéressant", "difficile", "travail"
+    };
+    private static final String[] SEASONS = {"A", "P"};
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+
+    private TestData() {
+        // Class should not be instantiated
+    }
+
+    /**
+     * @return a catalogue sorted by name, as the API serves it
+     */
+    public static List<UvListItem> uvs(int count) {
+        Random random = new Random(SEED);
+        List<UvListItem> uvs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uvs.add(new UvListItem(uvName(i), words(random, 2 + random.nextInt(4)), random.nextFloat() * 10, random.nextInt(200)));
+        }
+        Collections.sort(uvs, UvListItem.NAME_ORDER);
+        return uvs;
+    }
+
+    /**
+     * @param uvCount the number of UVs the comments are spread over
+     */
+    public static List<Comment> comments(int count, int uvCount) {
+        Random random = new Random(SEED);
+        List<Comment> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            comments.add(new Comment("Étudiant " + random.nextInt(10000), random.nextInt(11), date(random),
+                    SEASONS[random.nextInt(2)] + (10 + random.nextInt(8)), random.nextBoolean(),
+                    words(random, 20 + random.nextInt(60)), uvName(random.nextInt(uvCount))));
+        }
+        return comments;
+    }
+
+    public static String uvName(int index) {
+        return String.format(Locale.US, "%c%c%02d", 'A' + index / 26 % 26, 'A' + index % 26, index / 676);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String date(Random random) {
+        return String.format(Locale.US, "%02d/%02d/%02d", 1 + random.nextInt(28), 1 + random.nextInt(12), 8 + random.nextInt(9));
+    }
+
+    public static String toJson(Object value) {
+        return GSON.toJson(value);
+    }
+}
@@ -0,0 +1,10 @@
+package fr.utc.assos.uvweb;
+
+import android.app.Application;
+
+/**
+ * Used by Robolectric in place of {@link UvwebApplication}, so that tests only initialize what they exercise,
+ * without LeakCanary nor the sync scheduling.
+ */
+public class TestUvwebApplication extends Application {
+}
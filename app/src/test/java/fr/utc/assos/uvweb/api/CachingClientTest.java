@@ -0,0 +1,139 @@
+package fr.utc.assos.uvweb.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import fr.utc.assos.uvweb.TestData;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.client.UrlConnectionClient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Revalidation of UV details against a stand-in server that answers 304 when the ETag still matches.
+ */
+public class CachingClientTest {
+    private static final int UV_COUNT = 50;
+    private static final long CACHE_SIZE = 10 * 1024 * 1024;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicBoolean evictOnRevalidation = new AtomicBoolean();
+    private MockWebServer server;
+    private File cacheDirectory;
+    private HttpCacheStats stats;
+    private CachingClient client;
+    private int version = 1;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String etag = "\"" + version + request.getPath().hashCode() + "\"";
+                if (etag.equals(request.getHeader("If-None-Match"))) {
+                    if (evictOnRevalidation.get()) {
+                        for (File file : cacheDirectory.listFiles()) {
+                            file.delete();
+                        }
+                    }
+                    return new MockResponse().setResponseCode(304).setHeader("ETag", etag);
+                }
+                return new MockResponse().setHeader("ETag", etag).setBody(body(request.getPath()));
+            }
+        });
+        server.start();
+        cacheDirectory = folder.newFolder("http");
+        stats = new HttpCacheStats();
+        client = new CachingClient(new UrlConnectionClient(), new HttpDiskCache(cacheDirectory, CACHE_SIZE), stats, new RequestMetrics());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void revisitedDetailsAreServedFromTheCache() throws Exception {
+        long bodyBytes = 0;
+        for (int i = 0; i < UV_COUNT; i++) {
+            bodyBytes += fetch(TestData.uvName(i)).length;
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < UV_COUNT; i++) {
+                String path = detailPath(TestData.uvName(i));
+                assertArrayEquals(body(path).getBytes("UTF-8"), fetch(TestData.uvName(i)));
+            }
+        }
+
+        assertEquals(4 * UV_COUNT, stats.getRequestCount());
+        assertEquals(0.75f, stats.getHitRatio(), 0.001f);
+        assertEquals(3 * bodyBytes, stats.getBytesSaved());
+        assertEquals(bodyBytes, stats.getBytesTransferred());
+    }
+
+    @Test
+    public void changedDetailsAreDownloadedAgain() throws Exception {
+        for (int i = 0; i < UV_COUNT; i++) {
+            fetch(TestData.uvName(i));
+        }
+        version++;
+        for (int i = 0; i < UV_COUNT; i++) {
+            fetch(TestData.uvName(i));
+        }
+        for (int i = 0; i < UV_COUNT; i++) {
+            fetch(TestData.uvName(i));
+        }
+
+        assertEquals(UV_COUNT, stats.getNotModifiedCount());
+    }
+
+    @Test
+    public void entryEvictedDuringRevalidationIsDownloadedAgain() throws Exception {
+        String name = TestData.uvName(0);
+        fetch(name);
+        evictOnRevalidation.set(true);
+
+        assertArrayEquals(body(detailPath(name)).getBytes("UTF-8"), fetch(name));
+        assertEquals(0, stats.getNotModifiedCount());
+        assertEquals(3, server.getRequestCount());
+        server.takeRequest();
+        assertNotNull(server.takeRequest().getHeader("If-None-Match"));
+        // The stored body was gone when the 304 arrived
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    private byte[] fetch(String uvName) throws IOException {
+        Request request = new Request("GET", server.url(detailPath(uvName)).toString(), Collections.<Header>emptyList(), null);
+        Response response = client.execute(request);
+        assertEquals(200, response.getStatus());
+        return ((CachingClient.UrlBody) response.getBody()).getBytes();
+    }
+
+    private static String detailPath(String uvName) {
+        return "/uv/app/details/" + uvName;
+    }
+
+    private String body(String path) {
+        return "{\"path\":\"" + path + "\",\"version\":" + version + ",\"comments\":" + TestData.toJson(TestData.comments(20, 1)) + "}";
+    }
+}
@@ -0,0 +1,104 @@
+package fr.utc.assos.uvweb.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.MainLooper;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.data.UvwebDatabase;
+import fr.utc.assos.uvweb.model.UvDetail;
+import fr.utc.assos.uvweb.model.UvDetailContainer;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * A request cancelled while in flight must not complete the one started again for the same key.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class CancelledRequestTest {
+    private static final long TIMEOUT_MS = 10000;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        MainLooper.pause();
+        server = new MockWebServer();
+        server.start();
+        UvwebProvider.init(RuntimeEnvironment.application, server.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        UvwebProvider.awaitDiskWrites();
+        server.shutdown();
+        UvwebDatabase.getInstance(RuntimeEnvironment.application).close();
+    }
+
+    @Test
+    public void abortedDetailRequestDoesNotFailItsReplacement() throws Exception {
+        String name = TestData.uvName(0);
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        UvDetail detail = new UvDetail(new UvDetailContainer(null, TestData.comments(10, 1), null, 7));
+        server.enqueue(new MockResponse().setBody(TestData.toJson(detail)).setBodyDelay(500, TimeUnit.MILLISECONDS));
+
+        UvwebFuture<UvDetail> first = UvwebProvider.fetchUvDetail(name);
+        MainLooper.runUntil(new MainLooper.Condition() {
+            @Override
+            public boolean isMet() {
+                return server.getRequestCount() == 1;
+            }
+        }, TIMEOUT_MS);
+        // Aborts the connection, the failure of which is delivered while the second request runs
+        first.cancel();
+        final Result result = new Result();
+        UvwebFuture<UvDetail> second = UvwebProvider.fetchUvDetail(name).addCallback(result);
+        awaitDone(second);
+
+        assertNull(result.error);
+        assertNotNull(result.detail);
+        assertEquals(10, result.detail.getDetail().getComments().size());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private static void awaitDone(final UvwebFuture<?> future) throws InterruptedException {
+        MainLooper.runUntil(new MainLooper.Condition() {
+            @Override
+            public boolean isMet() {
+                return future.isDone();
+            }
+        }, TIMEOUT_MS);
+    }
+
+    private static class Result implements Callback<UvDetail> {
+        UvDetail detail;
+        RetrofitError error;
+
+        @Override
+        public void success(UvDetail uvDetail, Response response) {
+            detail = uvDetail;
+        }
+
+        @Override
+        public void failure(RetrofitError error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package fr.utc.assos.uvweb.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.MainLooper;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.data.UvCatalogueStore;
+import fr.utc.assos.uvweb.data.UvwebDatabase;
+import fr.utc.assos.uvweb.model.UvCatalogueDelta;
+import fr.utc.assos.uvweb.model.UvListItem;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Time from the request of the catalogue to the first rows the list can display.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class CatalogueLoadTest {
+    private static final int UV_COUNT = 3000;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        MainLooper.pause();
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        UvwebProvider.awaitDiskWrites();
+        server.shutdown();
+        UvwebDatabase.getInstance(RuntimeEnvironment.application).close();
+        UvwebProvider.setCatalogueFreshness(1, TimeUnit.HOURS);
+    }
+
+    @Test
+    public void coldStartShowsFirstRowsWhileDownloading() throws Exception {
+        String body = TestData.toJson(TestData.uvs(UV_COUNT));
+        // About a second to download the whole catalogue
+        server.enqueue(new MockResponse().setBody(body).throttleBody(body.length() / 20, 50, TimeUnit.MILLISECONDS));
+        UvwebProvider.init(RuntimeEnvironment.application, server.url("/").toString());
+        RequestMetrics metrics = UvwebProvider.getRequestMetrics();
+        metrics.setEnabled(true);
+        metrics.reset();
+
+        // Starts when the server receives the request, not counting the loading of the classes of the network stack
+        final long[] requestTime = new long[1];
+        Thread requestWatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    server.takeRequest();
+                    requestTime[0] = System.nanoTime();
+                } catch (InterruptedException e) {
+                    // no-op
+                }
+            }
+        });
+        requestWatcher.start();
+        CatalogueRecorder recorder = new CatalogueRecorder();
+        recorder.awaitCompletion(UvwebProvider.fetchUvs().addCallback(recorder));
+        requestWatcher.join();
+        recorder.setStart(requestTime[0]);
+
+        assertEquals(UV_COUNT, recorder.last().size());
+        assertTrue("Only the whole catalogue was delivered", recorder.valueCount() > 1);
+        assertTrue("First rows after " + recorder.firstValueMs() + " ms, whole catalogue after " + recorder.completionMs() + " ms",
+                recorder.firstValueMs() < recorder.completionMs() / 2);
+        // The parse overlaps the download, but the time spent waiting for the bytes is not counted
+        long parseMs = TimeUnit.MICROSECONDS.toMillis(metrics.getMax(RequestMetrics.ENDPOINT_UVS, RequestMetrics.METRIC_PARSE));
+        assertTrue("Parsed in " + parseMs + " ms, downloaded in " + recorder.completionMs() + " ms",
+                parseMs < recorder.completionMs() / 2);
+    }
+
+    @Test
+    public void warmStartShowsStoredCatalogueBeforeTheServerAnswers() throws Exception {
+        long version = 1234;
+        List<UvListItem> stored = TestData.uvs(UV_COUNT);
+        UvCatalogueStore store = new UvCatalogueStore(RuntimeEnvironment.application);
+        store.write(stored, version);
+        UvListItem added = new UvListItem("ZZ99", "Nouvelle UV", 0, 0);
+        UvCatalogueDelta delta = new UvCatalogueDelta(version + 1, Collections.singletonList(added), null);
+        server.enqueue(new MockResponse().setBody(TestData.toJson(delta)).setBodyDelay(500, TimeUnit.MILLISECONDS));
+        UvwebProvider.init(RuntimeEnvironment.application, server.url("/").toString());
+        UvwebProvider.setCatalogueFreshness(0, TimeUnit.MILLISECONDS);
+
+        CatalogueRecorder recorder = new CatalogueRecorder();
+        recorder.setStart(System.nanoTime());
+        recorder.awaitCompletion(UvwebProvider.fetchUvs().addCallback(recorder));
+
+        assertEquals(2, recorder.valueCount());
+        assertEquals(UV_COUNT, recorder.first().size());
+        assertNull("The stored catalogue has no response", recorder.firstResponse());
+        assertTrue("Stored catalogue after " + recorder.firstValueMs() + " ms", recorder.firstValueMs() < 500);
+        assertEquals(UV_COUNT + 1, recorder.last().size());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/uv/app/changes?since=" + version, request.getPath());
+    }
+}
@@ -0,0 +1,81 @@
+package fr.utc.assos.uvweb.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.MainLooper;
+import fr.utc.assos.uvweb.model.UvListItem;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+/**
+ * Records the catalogues delivered to the list, and when.
+ */
+class CatalogueRecorder implements Callback<List<UvListItem>> {
+    private static final long TIMEOUT_MS = 30000;
+
+    private final List<List<UvListItem>> values = new ArrayList<>();
+    private final List<Long> times = new ArrayList<>();
+    private Response firstResponse;
+    private RetrofitError error;
+    private long start;
+
+    void setStart(long start) {
+        this.start = start;
+    }
+
+    @Override
+    public void success(List<UvListItem> uvs, Response response) {
+        if (values.isEmpty()) {
+            firstResponse = response;
+        }
+        values.add(uvs);
+        times.add(System.nanoTime());
+    }
+
+    @Override
+    public void failure(RetrofitError error) {
+        this.error = error;
+    }
+
+    /**
+     * Runs the main looper until {@code future}, which this recorder was added to, is done.
+     */
+    void awaitCompletion(final UvwebFuture<?> future) throws InterruptedException {
+        MainLooper.runUntil(new MainLooper.Condition() {
+            @Override
+            public boolean isMet() {
+                return future.isDone();
+            }
+        }, TIMEOUT_MS);
+        if (error != null) {
+            throw new AssertionError(error);
+        }
+    }
+
+    Response firstResponse() {
+        return firstResponse;
+    }
+
+    int valueCount() {
+        return values.size();
+    }
+
+    List<UvListItem> first() {
+        return values.get(0);
+    }
+
+    List<UvListItem> last() {
+        return values.get(values.size() - 1);
+    }
+
+    long firstValueMs() {
+        return TimeUnit.NANOSECONDS.toMillis(times.get(0) - start);
+    }
+
+    long completionMs() {
+        return TimeUnit.NANOSECONDS.toMillis(times.get(times.size() - 1) - start);
+    }
+}
@@ -0,0 +1,172 @@
+package fr.utc.assos.uvweb.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.MainLooper;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.data.UvCatalogueStore;
+import fr.utc.assos.uvweb.data.UvwebDatabase;
+import fr.utc.assos.uvweb.model.UvCatalogueDelta;
+import fr.utc.assos.uvweb.model.UvListItem;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Revalidation of a stored catalogue against a stand-in server, through a delta or the full catalogue.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class CatalogueRevalidationTest {
+    private static final int UV_COUNT = 500;
+    private static final long VERSION = 1000;
+
+    private MockWebServer server;
+    private List<UvListItem> stored;
+
+    @Before
+    public void setUp() throws Exception {
+        MainLooper.pause();
+        server = new MockWebServer();
+        server.start();
+        stored = TestData.uvs(UV_COUNT);
+        newStore().write(stored, VERSION);
+        UvwebProvider.init(RuntimeEnvironment.application, server.url("/").toString());
+        UvwebProvider.setCatalogueFreshness(0, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        UvwebProvider.awaitDiskWrites();
+        server.shutdown();
+        UvwebDatabase.getInstance(RuntimeEnvironment.application).close();
+        UvwebProvider.setCatalogueFreshness(1, TimeUnit.HOURS);
+    }
+
+    @Test
+    public void deltaIsAppliedToTheStoredCatalogue() throws Exception {
+        UvListItem updated = new UvListItem(stored.get(10).getName(), "Titre mis à jour", 9, 42);
+        UvListItem inserted = new UvListItem(stored.get(20).getName() + "X", "Nouvelle UV", 0, 0);
+        String deleted = stored.get(30).getName();
+        UvCatalogueDelta delta = new UvCatalogueDelta(VERSION + 1, Arrays.asList(updated, inserted), Collections.singletonList(deleted));
+        server.enqueue(new MockResponse().setBody(TestData.toJson(delta)));
+
+        CatalogueRecorder recorder = revalidate();
+
+        assertEquals("/uv/app/changes?since=" + VERSION, server.takeRequest().getPath());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(2, recorder.valueCount());
+        List<UvListItem> expected = new ArrayList<>(stored);
+        expected.set(10, updated);
+        expected.add(21, inserted);
+        expected.remove(31);
+        assertSameUvs(expected, recorder.last());
+        UvwebProvider.awaitDiskWrites();
+        UvCatalogueStore store = newStore();
+        assertSameUvs(expected, store.read());
+        assertEquals(VERSION + 1, store.getVersion());
+    }
+
+    @Test
+    public void emptyDeltaOnlyMovesTheVersionForward() throws Exception {
+        File snapshot = new File(RuntimeEnvironment.application.getFilesDir(), "catalogue.snapshot");
+        Object fileKey = Files.readAttributes(snapshot.toPath(), BasicFileAttributes.class).fileKey();
+        long lastUpdate = newStore().getLastUpdate();
+        server.enqueue(new MockResponse().setBody(TestData.toJson(new UvCatalogueDelta(VERSION + 1, null, null))));
+
+        CatalogueRecorder recorder = revalidate();
+
+        assertEquals(1, recorder.valueCount());
+        assertNull("Only the stored catalogue was delivered", recorder.firstResponse());
+        UvwebProvider.awaitDiskWrites();
+        UvCatalogueStore store = newStore();
+        // Not rewritten then renamed over the old snapshot
+        assertEquals(fileKey, Files.readAttributes(snapshot.toPath(), BasicFileAttributes.class).fileKey());
+        assertEquals(VERSION + 1, store.getVersion());
+        assertTrue(store.getLastUpdate() >= lastUpdate);
+        assertSameUvs(stored, store.read());
+    }
+
+    @Test
+    public void fallsBackToTheFullCatalogueWhenNoDeltaIsAvailable() throws Exception {
+        List<UvListItem> full = TestData.uvs(UV_COUNT + 1);
+        server.enqueue(new MockResponse().setResponseCode(410));
+        server.enqueue(new MockResponse().setBody(TestData.toJson(full))
+                .setHeader(UvwebApi.HEADER_CATALOGUE_VERSION, VERSION + 5));
+
+        CatalogueRecorder recorder = revalidate();
+
+        assertEquals("/uv/app/changes?since=" + VERSION, server.takeRequest().getPath());
+        assertEquals("/uv/app/all/name/false", server.takeRequest().getPath());
+        // The stored catalogue stays on screen until the full one is parsed
+        assertEquals(2, recorder.valueCount());
+        assertSameUvs(full, recorder.last());
+        UvwebProvider.awaitDiskWrites();
+        UvCatalogueStore store = newStore();
+        assertSameUvs(full, store.read());
+        assertEquals(VERSION + 5, store.getVersion());
+    }
+
+    @Test
+    public void fullCatalogueWithoutVersionIsFetchedAgainNextTime() throws Exception {
+        List<UvListItem> full = TestData.uvs(UV_COUNT + 1);
+        server.enqueue(new MockResponse().setResponseCode(410));
+        server.enqueue(new MockResponse().setBody(TestData.toJson(full))
+                .setHeader("Date", "Sun, 18 Oct 2026 06:00:00 GMT"));
+
+        revalidate();
+
+        UvwebProvider.awaitDiskWrites();
+        // The server date is not a version the server can compute a delta from
+        assertEquals(0, newStore().getVersion());
+        stored = full;
+        server.enqueue(new MockResponse().setBody(TestData.toJson(full)));
+        revalidate();
+        server.takeRequest();
+        server.takeRequest();
+        assertEquals("/uv/app/all/name/false", server.takeRequest().getPath());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    /**
+     * A store of its own, which maps the snapshot as written by the provider's store.
+     */
+    private static UvCatalogueStore newStore() {
+        return new UvCatalogueStore(RuntimeEnvironment.application);
+    }
+
+    private CatalogueRecorder revalidate() throws InterruptedException {
+        CatalogueRecorder recorder = new CatalogueRecorder();
+        recorder.awaitCompletion(UvwebProvider.fetchUvs().addCallback(recorder));
+        assertSameUvs(stored, recorder.first());
+        return recorder;
+    }
+
+    private static void assertSameUvs(List<UvListItem> expected, List<UvListItem> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getCommentCount(), actual.get(i).getCommentCount());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package fr.utc.assos.uvweb.api;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Eviction of the least recently used entries, leaving the writes in progress alone.
+ */
+public class HttpDiskCacheTest {
+    private static final int BODY_SIZE = 1000;
+    /**
+     * Room for three entries, their header included.
+     */
+    private static final long CACHE_SIZE = 3 * BODY_SIZE + 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private HttpDiskCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("http");
+        cache = new HttpDiskCache(directory, CACHE_SIZE);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        cache.put("/a", entry());
+        cache.put("/b", entry());
+        cache.put("/c", entry());
+        assertNotNull(cache.get("/a"));
+
+        cache.put("/d", entry());
+
+        assertNotNull(cache.get("/a"));
+        assertNull(cache.get("/b"));
+        assertNotNull(cache.get("/c"));
+        assertNotNull(cache.get("/d"));
+    }
+
+    @Test
+    public void temporaryFilesAreNotEvicted() throws IOException {
+        File tmpFile = new File(directory, "0123456789abcdef0123456789abcdef.tmp");
+        FileOutputStream out = new FileOutputStream(tmpFile);
+        try {
+            out.write(new byte[4 * BODY_SIZE]);
+        } finally {
+            out.close();
+        }
+
+        for (int i = 0; i < 5; i++) {
+            cache.put("/" + i, entry());
+        }
+
+        assertTrue(tmpFile.exists());
+        assertNotNull(cache.get("/4"));
+    }
+
+    private static HttpDiskCache.Entry entry() {
+        return new HttpDiskCache.Entry("\"etag\"", null, "application/json", new byte[BODY_SIZE]);
+    }
+}
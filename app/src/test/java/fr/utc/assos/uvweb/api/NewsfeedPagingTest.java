@@ -0,0 +1,144 @@
+package fr.utc.assos.uvweb.api;
+
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.MainLooper;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.data.NewsfeedWindow;
+import fr.utc.assos.uvweb.data.UvwebDatabase;
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.Newsfeed;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrolls through a 50k-comment feed served by a stand-in server, page by page as NewsfeedFragment does.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class NewsfeedPagingTest {
+    private static final int COMMENT_COUNT = 50000;
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGES = 5;
+    private static final int PAGES_SCROLLED_BACK = 20;
+    private static final long TIMEOUT_MS = 10000;
+
+    private final List<Comment> feed = TestData.comments(COMMENT_COUNT, 600);
+    private final AtomicInteger maxBodyLength = new AtomicInteger();
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        MainLooper.pause();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                Uri uri = Uri.parse(request.getPath());
+                String cursor = uri.getQueryParameter("cursor");
+                int from = cursor == null ? 0 : Integer.parseInt(cursor);
+                int to = Math.min(from + Integer.parseInt(uri.getQueryParameter("limit")), COMMENT_COUNT);
+                String body = TestData.toJson(new Newsfeed(feed.subList(from, to), to < COMMENT_COUNT ? String.valueOf(to) : null));
+                synchronized (maxBodyLength) {
+                    maxBodyLength.set(Math.max(maxBodyLength.get(), body.length()));
+                }
+                return new MockResponse().setBody(body);
+            }
+        });
+        server.start();
+        UvwebProvider.init(RuntimeEnvironment.application, server.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        UvwebProvider.awaitDiskWrites();
+        server.shutdown();
+        UvwebDatabase.getInstance(RuntimeEnvironment.application).close();
+    }
+
+    @Test
+    public void scrollsThroughTheWholeFeedWithABoundedWindow() throws Exception {
+        NewsfeedWindow window = new NewsfeedWindow(MAX_PAGES);
+        int pageCount = 0;
+        while (window.hasNext()) {
+            Newsfeed page = fetch(window.isEmpty() ? null : window.getNextCursor());
+            int firstPosition = (pageCount - Math.min(pageCount, MAX_PAGES - 1)) * PAGE_SIZE;
+            window.append(page.getComments(), page.getNextCursor());
+            pageCount++;
+            assertTrue(window.size() <= MAX_PAGES * PAGE_SIZE);
+            assertSameComments(firstPosition, window);
+        }
+        assertEquals(COMMENT_COUNT / PAGE_SIZE, pageCount);
+        assertEquals(pageCount, server.getRequestCount());
+        // Every page is parsed on its own, whatever the size of the feed
+        assertTrue(maxBodyLength.get() < TestData.toJson(feed.subList(0, 2 * PAGE_SIZE)).length());
+
+        // Then back up a few pages
+        int firstPage = pageCount - MAX_PAGES;
+        for (int i = 0; i < PAGES_SCROLLED_BACK; i++) {
+            assertTrue(window.hasPrevious());
+            window.prepend(fetch(window.getPreviousCursor()).getComments());
+            firstPage--;
+            assertTrue(window.size() <= MAX_PAGES * PAGE_SIZE);
+            assertSameComments(firstPage * PAGE_SIZE, window);
+        }
+        assertTrue(window.hasNext());
+        assertEquals(pageCount + PAGES_SCROLLED_BACK, server.getRequestCount());
+    }
+
+    private void assertSameComments(int firstPosition, NewsfeedWindow window) {
+        for (int i = 0; i < window.size(); i++) {
+            Comment expected = feed.get(firstPosition + i);
+            Comment actual = window.get(i);
+            assertEquals(expected.getAuthor(), actual.getAuthor());
+            assertEquals(expected.getComment(), actual.getComment());
+            assertEquals(expected.getUvName(), actual.getUvName());
+        }
+    }
+
+    private Newsfeed fetch(String cursor) throws InterruptedException {
+        final Newsfeed[] result = new Newsfeed[1];
+        final RetrofitError[] error = new RetrofitError[1];
+        UvwebProvider.getNewsfeed(cursor, PAGE_SIZE, RequestScheduler.PRIORITY_VISIBLE, new Callback<Newsfeed>() {
+            @Override
+            public void success(Newsfeed newsfeed, Response response) {
+                result[0] = newsfeed;
+            }
+
+            @Override
+            public void failure(RetrofitError e) {
+                error[0] = e;
+            }
+        });
+        MainLooper.runUntil(new MainLooper.Condition() {
+            @Override
+            public boolean isMet() {
+                return result[0] != null || error[0] != null;
+            }
+        }, TIMEOUT_MS);
+        if (error[0] != null) {
+            throw new AssertionError(error[0]);
+        }
+        return result[0];
+    }
+}
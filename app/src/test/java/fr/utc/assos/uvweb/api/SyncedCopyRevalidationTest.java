@@ -0,0 +1,136 @@
+package fr.utc.assos.uvweb.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.MainLooper;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.data.SyncedDataStore;
+import fr.utc.assos.uvweb.data.UvwebDatabase;
+import fr.utc.assos.uvweb.model.Newsfeed;
+import fr.utc.assos.uvweb.model.UvDetail;
+import fr.utc.assos.uvweb.model.UvDetailContainer;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit.Callback;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * A copy from the last sync is shown right away, then replaced by the one the server returns.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class SyncedCopyRevalidationTest {
+    private static final long TIMEOUT_MS = 10000;
+
+    private MockWebServer server;
+    private SyncedDataStore syncedDataStore;
+
+    @Before
+    public void setUp() throws Exception {
+        MainLooper.pause();
+        server = new MockWebServer();
+        server.start();
+        UvwebProvider.init(RuntimeEnvironment.application, server.url("/").toString());
+        syncedDataStore = new SyncedDataStore(RuntimeEnvironment.application, UvwebProvider.createGson());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        UvwebProvider.awaitDiskWrites();
+        server.shutdown();
+        UvwebDatabase.getInstance(RuntimeEnvironment.application).close();
+    }
+
+    @Test
+    public void syncedDetailIsRevalidated() throws Exception {
+        String name = TestData.uvName(1);
+        syncedDataStore.writeUvDetail(name, detail(3));
+        server.enqueue(new MockResponse().setBody(TestData.toJson(detail(10))));
+
+        Results<UvDetail> results = new Results<>();
+        awaitDone(UvwebProvider.fetchUvDetail(name).addCallback(results));
+
+        assertNull(results.error);
+        assertEquals(2, results.values.size());
+        assertNull(results.responses.get(0));
+        assertEquals(3, results.values.get(0).getDetail().getComments().size());
+        assertNotNull(results.responses.get(1));
+        assertEquals(10, results.values.get(1).getDetail().getComments().size());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void failedRevalidationKeepsSyncedDetail() throws Exception {
+        String name = TestData.uvName(2);
+        syncedDataStore.writeUvDetail(name, detail(3));
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        Results<UvDetail> results = new Results<>();
+        UvwebFuture<UvDetail> future = UvwebProvider.fetchUvDetail(name).addCallback(results);
+        awaitDone(future);
+
+        assertNull(results.error);
+        assertEquals(1, results.values.size());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void syncedNewsfeedIsRevalidated() throws Exception {
+        syncedDataStore.writeNewsfeed(new Newsfeed(TestData.comments(5, 5), null));
+        server.enqueue(new MockResponse().setBody(TestData.toJson(new Newsfeed(TestData.comments(8, 5), "8"))));
+
+        Results<Newsfeed> results = new Results<>();
+        awaitDone(UvwebProvider.fetchNewsfeed(null, 50, RequestScheduler.PRIORITY_VISIBLE).addCallback(results));
+
+        assertNull(results.error);
+        assertEquals(2, results.values.size());
+        assertEquals(5, results.values.get(0).getComments().size());
+        assertEquals(8, results.values.get(1).getComments().size());
+        assertEquals("8", results.values.get(1).getNextCursor());
+    }
+
+    private static UvDetail detail(int commentCount) {
+        return new UvDetail(new UvDetailContainer(null, TestData.comments(commentCount, 1), null, 7));
+    }
+
+    private static void awaitDone(final UvwebFuture<?> future) throws InterruptedException {
+        MainLooper.runUntil(new MainLooper.Condition() {
+            @Override
+            public boolean isMet() {
+                return future.isDone();
+            }
+        }, TIMEOUT_MS);
+    }
+
+    private static class Results<T> implements Callback<T> {
+        final List<T> values = new ArrayList<>();
+        final List<Response> responses = new ArrayList<>();
+        RetrofitError error;
+
+        @Override
+        public void success(T value, Response response) {
+            values.add(value);
+            responses.add(response);
+        }
+
+        @Override
+        public void failure(RetrofitError error) {
+            this.error = error;
+        }
+    }
+}
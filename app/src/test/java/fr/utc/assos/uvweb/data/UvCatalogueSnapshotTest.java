@@ -0,0 +1,80 @@
+package fr.utc.assos.uvweb.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class UvCatalogueSnapshotTest {
+    private static final int UV_COUNT = 3000;
+    private static final int THREAD_COUNT = 8;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws Exception {
+        List<UvListItem> uvs = TestData.uvs(UV_COUNT);
+        File file = folder.newFile();
+        UvCatalogueSnapshot.write(file, uvs, 12, 34);
+
+        UvCatalogueSnapshot snapshot = UvCatalogueSnapshot.map(file);
+        assertEquals(12, snapshot.getVersion());
+        assertEquals(34, snapshot.getUpdatedAt());
+        List<UvListItem> decoded = snapshot.asList();
+        assertEquals(UV_COUNT, decoded.size());
+        for (int i = 0; i < UV_COUNT; i++) {
+            assertEquals(uvs.get(i).getName(), decoded.get(i).getName());
+            assertEquals(uvs.get(i).getTitle(), decoded.get(i).getTitle());
+            assertEquals(uvs.get(i).getGlobalRate(), decoded.get(i).getGlobalRate(), 0);
+            assertEquals(uvs.get(i).getCommentCount(), decoded.get(i).getCommentCount());
+        }
+    }
+
+    @Test
+    public void racingReadersGetTheSameInstances() throws Exception {
+        File file = folder.newFile();
+        UvCatalogueSnapshot.write(file, TestData.uvs(UV_COUNT), 1, 1);
+        final List<UvListItem> uvs = UvCatalogueSnapshot.map(file).asList();
+
+        final UvListItem[][] seen = new UvListItem[THREAD_COUNT][UV_COUNT];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int thread = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < UV_COUNT; i++) {
+                        seen[thread][i] = uvs.get(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < UV_COUNT; i++) {
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                assertSame(uvs.get(i), seen[t][i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package fr.utc.assos.uvweb.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Search latency over about as many UVs and comments as the app ends up indexing.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class UvFullTextIndexTest {
+    private static final int UV_COUNT = 600;
+    private static final int COMMENT_COUNT = 20000;
+    private static final int COMMENTS_PER_UV = COMMENT_COUNT / UV_COUNT;
+    private static final int SEARCH_LIMIT = 50;
+    private static final long MAX_SEARCH_MS = 10;
+    private static final int TIMED_RUNS = 5;
+
+    private UvFullTextIndex index;
+
+    @Before
+    public void setUp() {
+        index = new UvFullTextIndex(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        UvwebDatabase.getInstance(RuntimeEnvironment.application).close();
+    }
+
+    @Test
+    public void exactTermRanksBeforePrefixes() {
+        index.indexTitles(Arrays.asList(new UvListItem("PH01", "Physiques quantiques", 0, 0),
+                new UvListItem("MT90", "Fonctions d'une variable", 0, 0),
+                new UvListItem("PS90", "Physique générale", 0, 0)));
+
+        assertEquals(Arrays.asList("PS90", "PH01"), index.search("Physique", SEARCH_LIMIT));
+        assertEquals(Arrays.asList("PH01", "PS90"), index.search("phys", SEARCH_LIMIT));
+        assertEquals(Arrays.asList("PS90"), index.search("phys géné", SEARCH_LIMIT));
+        assertTrue(index.search("phys fonction", SEARCH_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void searchIsFastOnARealisticCorpus() {
+        List<UvListItem> uvs = TestData.uvs(UV_COUNT);
+        index.indexTitles(uvs);
+        List<Comment> comments = TestData.comments(COMMENT_COUNT, UV_COUNT);
+        for (int i = 0; i < UV_COUNT; i++) {
+            index.indexUvComments(TestData.uvName(i), new ArrayList<Comment>());
+        }
+        for (int from = 0; from < COMMENT_COUNT; from += COMMENTS_PER_UV) {
+            index.indexComments(comments.subList(from, Math.min(from + COMMENTS_PER_UV, COMMENT_COUNT)));
+        }
+
+        // A word in the comments of every UV matches all of them, not only those first found
+        assertEquals(UV_COUNT, index.search("di", UV_COUNT).size());
+
+        // From the keystrokes of a user typing, the shortest prefixes being the most expensive
+        List<String> queries = Arrays.asList("di", "dif", "diff", "difficile", "difficile tr", "difficile tra",
+                "pr", "pro", "projet me", "él", "éle", "électronique");
+        // The first queries compile the statements
+        for (String query : queries) {
+            index.search(query, SEARCH_LIMIT);
+        }
+        // The fastest of a few runs, so that a pause of the test machine is not counted
+        List<Long> timings = new ArrayList<>();
+        for (String query : queries) {
+            long fastest = Long.MAX_VALUE;
+            for (int run = 0; run < TIMED_RUNS; run++) {
+                long start = System.nanoTime();
+                List<String> results = index.search(query, SEARCH_LIMIT);
+                fastest = Math.min(fastest, System.nanoTime() - start);
+                assertFalse(query, results.isEmpty());
+            }
+            timings.add(TimeUnit.NANOSECONDS.toMillis(fastest));
+        }
+        assertTrue("Search timings (ms) for " + queries + ": " + timings, Collections.max(timings) <= MAX_SEARCH_MS);
+    }
+}
@@ -0,0 +1,153 @@
+package fr.utc.assos.uvweb.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.api.ModelTypeAdapterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StringPoolTest {
+    private static final int COMMENT_COUNT = 100000;
+    private static final int UV_COUNT = 600;
+    private static final int PAGE_SIZE = 1000;
+    private static final int ROUNDS = 3;
+    private static final int MAX_COLLECTIONS = 10;
+    private static final long STABLE_HEAP_BYTES = 64 * 1024;
+    /**
+     * A semester, a UV name and an outcome parsed on their own take about 48 bytes each, of which
+     * about 115 bytes per comment are measured as saved on a 64-bit JVM. The margin absorbs the noise of heap measurements.
+     */
+    private static final long MIN_BYTES_SAVED_PER_COMMENT = 64;
+    private static final Gson POOLING_GSON = new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+    private static final Type COMMENT_LIST = new TypeToken<List<Comment>>() {
+    }.getType();
+    private static final Type LEGACY_COMMENT_LIST = new TypeToken<List<LegacyComment>>() {
+    }.getType();
+
+    @Test
+    public void parsedCommentsShareTheirSemestersAndUvNames() {
+        List<Comment> comments = parse(POOLING_GSON, toJsonPages(TestData.comments(COMMENT_COUNT, UV_COUNT)), COMMENT_LIST);
+
+        Map<String, Boolean> distinct = new IdentityHashMap<>();
+        for (Comment comment : comments) {
+            distinct.put(comment.getSemester(), true);
+            distinct.put(comment.getUvName(), true);
+        }
+        // 2 seasons over 8 years, and the UV names
+        assertTrue(distinct.size() + " distinct instances", distinct.size() <= 16 + UV_COUNT);
+    }
+
+    @Test
+    public void compactCommentsRetainLessHeapThanTheirStringFieldsVersion() throws InterruptedException {
+        // Serialized up front and the source dropped, so that its pooled strings are not shared with the parsed comments
+        List<String> pages = toJsonPages(TestData.comments(COMMENT_COUNT, UV_COUNT));
+
+        long legacyBytes = Long.MAX_VALUE;
+        long compactBytes = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = retainedHeap();
+            List<LegacyComment> legacy = parse(new Gson(), pages, LEGACY_COMMENT_LIST);
+            legacyBytes = Math.min(legacyBytes, retainedHeap() - before);
+            assertEquals(COMMENT_COUNT, legacy.size());
+            legacy = null;
+
+            before = retainedHeap();
+            List<Comment> compact = parse(POOLING_GSON, pages, COMMENT_LIST);
+            compactBytes = Math.min(compactBytes, retainedHeap() - before);
+            assertEquals(COMMENT_COUNT, compact.size());
+            compact = null;
+        }
+
+        long savedPerComment = (legacyBytes - compactBytes) / COMMENT_COUNT;
+        assertTrue(savedPerComment + " bytes saved per comment", savedPerComment >= MIN_BYTES_SAVED_PER_COMMENT);
+    }
+
+    @Test
+    public void unusedValuesLeaveThePool() throws InterruptedException {
+        // Built at runtime, as literals are interned by the VM and never collected
+        String value = new StringBuilder("UV").append(System.nanoTime()).toString();
+        Comment comment = new Comment("Étudiant", 5, "01/01/16", "A16", true, "", value);
+        assertSame(comment.getUvName(), StringPool.get(new String(value)));
+        WeakReference<String> canonical = new WeakReference<>(comment.getUvName());
+
+        value = null;
+        comment = null;
+        usedHeap();
+
+        assertNull(canonical.get());
+    }
+
+    private static List<String> toJsonPages(List<Comment> source) {
+        List<String> pages = new ArrayList<>();
+        // Page by page, as the app receives them
+        for (int from = 0; from < source.size(); from += PAGE_SIZE) {
+            pages.add(POOLING_GSON.toJson(source.subList(from, Math.min(from + PAGE_SIZE, source.size())), COMMENT_LIST));
+        }
+        return pages;
+    }
+
+    private static <T> List<T> parse(Gson gson, List<String> pages, Type type) {
+        List<T> comments = new ArrayList<>(COMMENT_COUNT);
+        for (String page : pages) {
+            List<T> parsed = gson.fromJson(page, type);
+            comments.addAll(parsed);
+        }
+        return comments;
+    }
+
+    /**
+     * @return the heap in use once collections no longer free anything
+     */
+    private static long retainedHeap() throws InterruptedException {
+        long used = usedHeap();
+        for (int i = 0; i < MAX_COLLECTIONS; i++) {
+            long previous = used;
+            used = usedHeap();
+            if (previous - used < STABLE_HEAP_BYTES) {
+                break;
+            }
+        }
+        return used;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Fields of {@link Comment} before it was made compact, with every value held as its own string.
+     */
+    @SuppressWarnings("unused")
+    private static class LegacyComment {
+        @SerializedName("identity")
+        private String author;
+        private int globalRate;
+        private String date;
+        private String semester;
+        private String passed;
+        private String comment;
+        @SerializedName("name")
+        private String uvName;
+    }
+}
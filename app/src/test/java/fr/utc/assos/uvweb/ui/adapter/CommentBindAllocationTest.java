@@ -0,0 +1,106 @@
+package fr.utc.assos.uvweb.ui.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utc.assos.uvweb.Allocations;
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.R;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.Poll;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Binding the comment cards and the header of a UV must not allocate once they are created.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class CommentBindAllocationTest {
+    private static final int COMMENT_COUNT = 50;
+    private static final int CARD_COUNT = 8;
+    private static final int POLL_COUNT = 10;
+    private static final int WARM_UP_BINDS = 10000;
+    private static final int MEASURED_BINDS = 100000;
+    /**
+     * Same allowance as {@link UvListBindAllocationTest} for what the JVM allocates by itself.
+     */
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    private CommentAdapter adapter;
+    private FrameLayout parent;
+
+    @Before
+    public void setUp() {
+        adapter = new CommentAdapter(RuntimeEnvironment.application, new CommentAdapter.ItemClickListener() {
+            @Override
+            public void onClick(Comment comment) {
+                // no-op
+            }
+        });
+        List<Poll> polls = new ArrayList<>();
+        for (int i = 0; i < POLL_COUNT; i++) {
+            polls.add(new Poll(0.5f + i * 0.05f, 2010 + i / 2, i % 2 == 0 ? "A" : "P"));
+        }
+        adapter.setComments(TestData.comments(COMMENT_COUNT, 1), 7.5f, polls);
+        parent = new FrameLayout(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void rebindingCardsDoesNotAllocate() {
+        final RecyclerView.ViewHolder[] cards = new RecyclerView.ViewHolder[CARD_COUNT];
+        final View[] cardViews = new View[CARD_COUNT];
+        for (int i = 0; i < CARD_COUNT; i++) {
+            cards[i] = adapter.onCreateViewHolder(parent, adapter.getItemViewType(1));
+            cardViews[i] = cards[i].itemView.findViewById(R.id.comment_card);
+        }
+        Allocations.Task bind = new Allocations.Task() {
+            @Override
+            public void run(int iteration) {
+                adapter.onBindViewHolder(cards[iteration % CARD_COUNT], 1 + iteration % COMMENT_COUNT);
+            }
+        };
+        // Robolectric allocates a proxy to call the real method on each of these, which a device does not
+        Allocations.Task relayout = new Allocations.Task() {
+            @Override
+            public void run(int iteration) {
+                cardViews[iteration % CARD_COUNT].requestLayout();
+                cardViews[iteration % CARD_COUNT].invalidate();
+            }
+        };
+
+        Allocations.measure(bind, WARM_UP_BINDS);
+        Allocations.measure(relayout, WARM_UP_BINDS);
+        long allocated = Allocations.measure(bind, MEASURED_BINDS) - Allocations.measure(relayout, MEASURED_BINDS);
+
+        assertTrue("Allocated " + allocated + " bytes over " + MEASURED_BINDS + " binds", allocated <= MAX_ALLOCATED_BYTES);
+    }
+
+    @Test
+    public void rebindingHeaderDoesNotAllocate() {
+        final RecyclerView.ViewHolder header = adapter.onCreateViewHolder(parent, adapter.getItemViewType(0));
+        Allocations.Task bind = new Allocations.Task() {
+            @Override
+            public void run(int iteration) {
+                adapter.onBindViewHolder(header, 0);
+            }
+        };
+
+        Allocations.measure(bind, WARM_UP_BINDS);
+        long allocated = Allocations.measure(bind, MEASURED_BINDS);
+
+        assertTrue("Allocated " + allocated + " bytes over " + MEASURED_BINDS + " binds", allocated <= MAX_ALLOCATED_BYTES);
+    }
+}
@@ -0,0 +1,147 @@
+package fr.utc.assos.uvweb.ui.adapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.MainLooper;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.data.UvCataloguePrefix;
+import fr.utc.assos.uvweb.model.UvListItem;
+import fr.utc.assos.uvweb.util.UvSortIndex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Only the prefixes of a catalogue download are appended, any other catalogue is applied as a diff.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class UvListAdapterTest {
+    private static final long TIMEOUT_MS = 10000;
+    private static final int UV_COUNT = 40;
+
+    private UvListAdapter adapter;
+    private RecordingObserver observer;
+
+    @Before
+    public void setUp() {
+        MainLooper.pause();
+        adapter = new UvListAdapter(new UvListAdapter.ItemClickListener() {
+            @Override
+            public void onClick(UvListItem uv) {
+                // no-op
+            }
+        });
+        observer = new RecordingObserver();
+        adapter.registerAdapterDataObserver(observer);
+    }
+
+    @Test
+    public void downloadPrefixesAreAppended() {
+        List<UvListItem> catalogue = TestData.uvs(UV_COUNT);
+        UvCataloguePrefix uvs = UvCataloguePrefix.start().append(catalogue.subList(0, 10));
+        adapter.setUvs(uvs);
+        observer.reset();
+
+        uvs = uvs.append(catalogue.subList(10, 25));
+        adapter.setUvs(uvs);
+
+        assertEquals(10, observer.insertedStart);
+        assertEquals(15, observer.insertedCount);
+        assertEquals(25, adapter.getItemCount());
+        assertSame(catalogue.get(24), adapter.getUv(24));
+    }
+
+    @Test
+    public void sameSizeUpdateIsDiffed() throws Exception {
+        final List<UvListItem> uvs = TestData.uvs(UV_COUNT);
+        adapter.setUvs(uvs);
+        observer.reset();
+
+        // Same bounds and size, as an in place update of the catalogue has
+        final int updated = UV_COUNT / 2;
+        final List<UvListItem> newUvs = new ArrayList<>(uvs);
+        UvListItem uv = uvs.get(updated);
+        newUvs.set(updated, new UvListItem(uv.getName(), uv.getTitle() + " (new)", uv.getGlobalRate(), uv.getCommentCount()));
+        adapter.setUvs(newUvs);
+        MainLooper.runUntil(new MainLooper.Condition() {
+            @Override
+            public boolean isMet() {
+                return observer.changed(updated);
+            }
+        }, TIMEOUT_MS);
+
+        assertEquals(-1, observer.insertedStart);
+        assertSame(newUvs.get(updated), adapter.getUv(updated));
+    }
+
+    @Test
+    public void downloadIsSortedOnceComplete() throws Exception {
+        List<UvListItem> catalogue = TestData.uvs(UV_COUNT);
+        adapter.setOrder(UvSortIndex.ORDER_COMMENT_COUNT);
+        UvCataloguePrefix uvs = UvCataloguePrefix.start().append(catalogue.subList(0, 10));
+        adapter.setUvs(uvs);
+        uvs = uvs.append(catalogue.subList(10, UV_COUNT));
+        adapter.setUvs(uvs);
+        // Not searched, so nothing is posted to the main thread
+        assertEquals(0, adapter.getItemCount());
+
+        adapter.setUvs(uvs.complete());
+        MainLooper.runUntil(new MainLooper.Condition() {
+            @Override
+            public boolean isMet() {
+                return adapter.getItemCount() == UV_COUNT;
+            }
+        }, TIMEOUT_MS);
+
+        for (int i = 1; i < UV_COUNT; i++) {
+            assertTrue(adapter.getUv(i - 1).getCommentCount() >= adapter.getUv(i).getCommentCount());
+        }
+    }
+
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+        boolean dataSetChanged;
+        int changedStart = -1;
+        int changedCount;
+        int insertedStart = -1;
+        int insertedCount;
+
+        void reset() {
+            dataSetChanged = false;
+            changedStart = -1;
+            insertedStart = -1;
+        }
+
+        boolean changed(int position) {
+            return dataSetChanged || changedStart >= 0 && changedStart <= position && position < changedStart + changedCount;
+        }
+
+        @Override
+        public void onChanged() {
+            dataSetChanged = true;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            changedStart = positionStart;
+            changedCount = itemCount;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            insertedStart = positionStart;
+            insertedCount = itemCount;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package fr.utc.assos.uvweb.ui.adapter;
+
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import fr.utc.assos.uvweb.Allocations;
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Binding a row of the UV list, text views included, must not allocate once the rows are created.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class UvListBindAllocationTest {
+    private static final int UV_COUNT = 600;
+    private static final int ROW_COUNT = 12;
+    private static final int WARM_UP_BINDS = 10000;
+    private static final int MEASURED_BINDS = 100000;
+    /**
+     * Allowance for what the JVM allocates on the test thread by itself, such as the counter readings,
+     * far below the 16 bytes a single object per bind would take.
+     */
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    @Test
+    public void rebindingRowsDoesNotAllocate() {
+        final UvListAdapter adapter = new UvListAdapter(new UvListAdapter.ItemClickListener() {
+            @Override
+            public void onClick(UvListItem uv) {
+                // no-op
+            }
+        });
+        adapter.setUvs(TestData.uvs(UV_COUNT));
+        FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+        final UvListAdapter.ViewHolder[] rows = new UvListAdapter.ViewHolder[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; i++) {
+            rows[i] = adapter.onCreateViewHolder(parent, 0);
+        }
+        // Binds the rows to the UVs in turn, as scrolling through the list does
+        Allocations.Task bind = new Allocations.Task() {
+            @Override
+            public void run(int iteration) {
+                adapter.onBindViewHolder(rows[iteration % ROW_COUNT], iteration % UV_COUNT);
+            }
+        };
+
+        Allocations.measure(bind, WARM_UP_BINDS);
+        long allocated = Allocations.measure(bind, MEASURED_BINDS);
+
+        assertTrue("Allocated " + allocated + " bytes over " + MEASURED_BINDS + " binds", allocated <= MAX_ALLOCATED_BYTES);
+    }
+}
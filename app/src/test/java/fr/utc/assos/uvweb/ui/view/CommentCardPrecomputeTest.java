@@ -0,0 +1,91 @@
+package fr.utc.assos.uvweb.ui.view;
+
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import fr.utc.assos.uvweb.BuildConfig;
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.model.Comment;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cards bound after their text was precomputed when the comments arrived do not lay it out on the main thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class CommentCardPrecomputeTest {
+    /**
+     * Three newsfeed pages, which the renderer keeps all the layouts of.
+     */
+    private static final int COMMENT_COUNT = 150;
+    private static final int UV_COUNT = 50;
+    private static final int CARD_WIDTH = 1080;
+
+    @Test
+    public void precomputedCardsAreNotLaidOutOnBind() throws Exception {
+        Context context = RuntimeEnvironment.application;
+        List<Comment> comments = TestData.comments(COMMENT_COUNT, UV_COUNT);
+        CommentCardView view = new CommentCardView(context);
+
+        CountingTextProvider cold = new CountingTextProvider();
+        bindAll(view, cold.newRenderer(context), comments);
+        assertEquals(COMMENT_COUNT, cold.laidOutOnTestThread);
+
+        CountingTextProvider texts = new CountingTextProvider();
+        CommentCardRenderer renderer = texts.newRenderer(context);
+        // The first card measured gives the width the others are precomputed at
+        bindAll(view, renderer, comments.subList(0, 1));
+        renderer.precompute(comments);
+        CommentCardRenderer.awaitPrecomputed();
+        int laidOutBefore = texts.laidOutOnTestThread;
+        bindAll(view, renderer, comments);
+        assertEquals(laidOutBefore, texts.laidOutOnTestThread);
+    }
+
+    /**
+     * Binds, measures and lays out a card for each comment.
+     */
+    private static void bindAll(CommentCardView view, CommentCardRenderer renderer, List<Comment> comments) {
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(CARD_WIDTH, View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        for (Comment comment : comments) {
+            view.bind(renderer, comment);
+            view.measure(widthSpec, heightSpec);
+            view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        }
+    }
+
+    /**
+     * Counts the cards laid out on the test thread, which is the main thread, rather than precomputed.
+     */
+    private static class CountingTextProvider implements CommentCardRenderer.TextProvider {
+        private final Thread testThread = Thread.currentThread();
+        int laidOutOnTestThread;
+
+        CommentCardRenderer newRenderer(Context context) {
+            return new CommentCardRenderer(context, this);
+        }
+
+        @Override
+        public CharSequence getHeadline(Comment comment) {
+            if (Thread.currentThread() == testThread) {
+                laidOutOnTestThread++;
+            }
+            return comment.getUvName();
+        }
+
+        @Override
+        public CharSequence getSubtitle(Comment comment) {
+            return comment.getAuthor();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fr.utc.assos.uvweb.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.utc.assos.uvweb.model.Comment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommentSorterTest {
+    @Test
+    public void shortDaysAndMonthsAndLongYearsAreParsed() {
+        int key = CommentSorter.parseDateKey("05/03/16");
+
+        assertEquals(key, CommentSorter.parseDateKey("5/3/16"));
+        assertEquals(key, CommentSorter.parseDateKey("05/3/16"));
+        assertEquals(key, CommentSorter.parseDateKey("5/03/2016"));
+        assertEquals(key, CommentSorter.parseDateKey("05/03/2016"));
+        assertTrue(CommentSorter.parseDateKey("31/12/15") < key);
+        assertTrue(CommentSorter.parseDateKey("6/3/16") > key);
+    }
+
+    @Test
+    public void malformedDatesAreUnknown() {
+        for (String date : Arrays.asList(null, "", "05/03", "05/03/", "05/03/6", "05/03/016", "05/03/20166",
+                "005/03/16", "05/003/16", "/03/16", "05//16", "0a/03/16", "05/03/1a", "32/03/16", "05/13/16",
+                "00/03/16", "05/00/16", "05-03-16", "05/03/16/")) {
+            assertEquals(date, CommentSorter.UNKNOWN_DATE, CommentSorter.parseDateKey(date));
+        }
+    }
+
+    @Test
+    public void recentCommentsComeFirstAndUnknownDatesLast() {
+        List<Comment> comments = new ArrayList<>();
+        for (String date : Arrays.asList("1/9/15", "unknown", "12/01/2016", "01/09/15", "3/1/16")) {
+            comments.add(new Comment("Étudiant", 5, date, "A15", true, "", "SR03"));
+        }
+
+        CommentSorter.sortByDate(comments);
+
+        List<String> dates = new ArrayList<>();
+        for (Comment comment : comments) {
+            dates.add(comment.getDate());
+        }
+        assertEquals(Arrays.asList("12/01/2016", "3/1/16", "1/9/15", "01/09/15", "unknown"), dates);
+    }
+}
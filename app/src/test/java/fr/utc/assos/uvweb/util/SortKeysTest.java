@@ -0,0 +1,18 @@
+package fr.utc.assos.uvweb.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class SortKeysTest {
+    @Test
+    public void equalKeysKeepTheirOrder() {
+        long[] sortKeys = {3, 1, 2, 1, Integer.MAX_VALUE, 0, 3};
+        long[] keys = new long[sortKeys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SortKeys.pack(sortKeys[i], i);
+        }
+
+        assertArrayEquals(new int[]{5, 1, 3, 2, 0, 6, 4}, SortKeys.sortedPositions(keys));
+    }
+}
@@ -0,0 +1,36 @@
+package fr.utc.assos.uvweb.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.utc.assos.uvweb.TestData;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UvSortIndexTest {
+    private static final int UV_COUNT = 600;
+
+    @Test
+    public void subsetIsMatchedByName() {
+        List<UvListItem> uvs = TestData.uvs(UV_COUNT);
+        UvSortIndex index = new UvSortIndex(uvs);
+
+        // Same UVs decoded again, as a search result built from a reloaded catalogue is
+        List<UvListItem> subset = new ArrayList<>();
+        for (int i = 0; i < UV_COUNT; i += 3) {
+            UvListItem uv = uvs.get(i);
+            subset.add(new UvListItem(uv.getName(), uv.getTitle(), uv.getGlobalRate(), uv.getCommentCount()));
+        }
+
+        List<UvListItem> sorted = index.sort(UvSortIndex.ORDER_COMMENT_COUNT, subset);
+
+        assertEquals(subset.size(), sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(sorted.get(i - 1).getCommentCount() >= sorted.get(i).getCommentCount());
+        }
+    }
+}
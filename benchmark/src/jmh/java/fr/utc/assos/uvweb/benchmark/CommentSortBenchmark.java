@@ -0,0 +1,67 @@
+package fr.utc.assos.uvweb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.util.CommentSorter;
+
+/**
+ * Measures the sort applied to the comments of a UV before they are displayed.
+ * Each invocation sorts a fresh copy of the unsorted list, as the adapter does.
+ * The comparator that parsed both dates on every comparison is kept as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CommentSortBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<Comment> comments;
+
+    @Setup
+    public void setUp() {
+        comments = SyntheticData.comments(size);
+    }
+
+    @Benchmark
+    public List<Comment> sortByDate() {
+        List<Comment> copy = new ArrayList<>(comments);
+        CommentSorter.sortByDate(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public List<Comment> sortByDateParsingInComparator() {
+        List<Comment> copy = new ArrayList<>(comments);
+        final DateFormat format = new SimpleDateFormat("dd/MM/yy", Locale.FRENCH);
+        Collections.sort(copy, new Comparator<Comment>() {
+            @Override
+            public int compare(Comment lhs, Comment rhs) {
+                try {
+                    return format.parse(rhs.getDate()).compareTo(format.parse(lhs.getDate()));
+                } catch (ParseException exception) {
+                    return 1;
+                }
+            }
+        });
+        return copy;
+    }
+}
@@ -0,0 +1,70 @@
+package fr.utc.assos.uvweb.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.api.ModelTypeAdapterFactory;
+import fr.utc.assos.uvweb.model.Newsfeed;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Compares Gson's reflective adapters with {@link ModelTypeAdapterFactory} on the catalogue and newsfeed payloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeserializationBenchmark {
+    private static final Type UV_LIST_TYPE = new TypeToken<List<UvListItem>>() {
+    }.getType();
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private final Gson reflectiveGson = new Gson();
+    private final Gson streamingGson = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+
+    private String catalogueJson;
+    private String newsfeedJson;
+
+    @Setup
+    public void setUp() {
+        catalogueJson = streamingGson.toJson(SyntheticData.uvs(size), UV_LIST_TYPE);
+        newsfeedJson = streamingGson.toJson(SyntheticData.newsfeed(size));
+    }
+
+    @Benchmark
+    public List<UvListItem> catalogueReflective() {
+        return reflectiveGson.fromJson(catalogueJson, UV_LIST_TYPE);
+    }
+
+    @Benchmark
+    public List<UvListItem> catalogueStreaming() {
+        return streamingGson.fromJson(catalogueJson, UV_LIST_TYPE);
+    }
+
+    @Benchmark
+    public Newsfeed newsfeedReflective() {
+        return reflectiveGson.fromJson(newsfeedJson, Newsfeed.class);
+    }
+
+    @Benchmark
+    public Newsfeed newsfeedStreaming() {
+        return streamingGson.fromJson(newsfeedJson, Newsfeed.class);
+    }
+}
@@ -0,0 +1,79 @@
+package fr.utc.assos.uvweb.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import fr.utc.assos.uvweb.model.Comment;
+import fr.utc.assos.uvweb.model.Newsfeed;
+import fr.utc.assos.uvweb.model.UvListItem;
+
+/**
+ * Generates deterministic datasets shaped like the UVweb API responses.
+ */
+final class SyntheticData {
+    private static final long SEED = 42;
+    private static final String[] TITLE_WORDS = {
+            "Thermodynamique", "Réseaux", "Bases", "de", "données", "Algorithmique", "Mécanique", "Systèmes",
+            "Management", "Électronique", "Probabilités", "Statistiques", "Génie", "logiciel", "Chimie", "Physique"
+    };
+    private static final String[] SEASONS = {"A", "P"};
+
+    private SyntheticData() {
+        // Class should not be instantiated
+    }
+
+    static List<UvListItem> uvs(int count) {
+        Random random = new Random(SEED);
+        List<UvListItem> uvs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uvs.add(new UvListItem(uvName(random, i), title(random), random.nextFloat() * 10, random.nextInt(200)));
+        }
+        return uvs;
+    }
+
+    static List<Comment> comments(int count) {
+        Random random = new Random(SEED);
+        List<Comment> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            comments.add(new Comment("Étudiant " + random.nextInt(10000), random.nextInt(11), date(random),
+                    SEASONS[random.nextInt(2)] + (10 + random.nextInt(8)), random.nextBoolean(),
+                    body(random), uvName(random, random.nextInt(count))));
+        }
+        return comments;
+    }
+
+    static Newsfeed newsfeed(int count) {
+        return new Newsfeed(comments(count));
+    }
+
+    private static String uvName(Random random, int index) {
+        return "" + (char) ('A' + random.nextInt(26)) + (char) ('A' + random.nextInt(26)) + index;
+    }
+
+    private static String title(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int words = 2 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String date(Random random) {
+        return String.format(Locale.US, "%02d/%02d/%02d", 1 + random.nextInt(28), 1 + random.nextInt(12), 8 + random.nextInt(9));
+    }
+
+    private static String body(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int words = 20 + random.nextInt(80);
+        for (int i = 0; i < words; i++) {
+            builder.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)].toLowerCase(Locale.FRENCH)).append(' ');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package fr.utc.assos.uvweb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.utc.assos.uvweb.model.UvListItem;
+import fr.utc.assos.uvweb.util.UvSearchIndex;
+
+/**
+ * Measures the search run on every keystroke of the UV list search view.
+ * The linear scan the adapter used to run is kept as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UvListFilterBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"n", "nf", "nf1"})
+    public String search;
+
+    private List<UvListItem> uvs;
+    private UvSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        uvs = SyntheticData.uvs(size);
+        index = new UvSearchIndex(uvs);
+    }
+
+    @Benchmark
+    public List<UvListItem> linearScan() {
+        List<UvListItem> filteredUvs = new ArrayList<>();
+        for (UvListItem uv : uvs) {
+            if (uv.getName().toLowerCase().startsWith(search)) {
+                filteredUvs.add(uv);
+            }
+        }
+        return filteredUvs;
+    }
+
+    @Benchmark
+    public List<UvListItem> indexSearch() {
+        return index.search(search);
+    }
+
+    @Benchmark
+    public UvSearchIndex buildIndex() {
+        return new UvSearchIndex(uvs);
+    }
+}